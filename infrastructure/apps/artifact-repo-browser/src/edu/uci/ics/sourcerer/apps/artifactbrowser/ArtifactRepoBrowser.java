@@ -17,8 +17,15 @@
  */
 package edu.uci.ics.sourcerer.apps.artifactbrowser;
 
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -36,8 +43,10 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Project;
 import edu.uci.ics.sourcerer.tools.java.model.types.Type;
 import edu.uci.ics.sourcerer.util.TimeoutManager;
 import edu.uci.ics.sourcerer.util.io.arguments.ArgumentManager;
+import edu.uci.ics.sourcerer.utils.db.AsyncQueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+import edu.uci.ics.sourcerer.utils.db.QueryCallable;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.QualifiedColumn;
@@ -63,6 +72,7 @@ public class ArtifactRepoBrowser extends HttpServlet {
           }
         }
       }, 10 * 60 * 1000);
+  private AsyncQueryExecutor async;
   
   @Override
   public void init() throws ServletException {
@@ -71,6 +81,12 @@ public class ArtifactRepoBrowser extends HttpServlet {
     DatabaseConnectionFactory.DATABASE_USER.permit();
     DatabaseConnectionFactory.DATABASE_PASSWORD.permit();
     ArgumentManager.initializeProperties();
+    async = DatabaseConnectionFactory.INSTANCE.createAsyncExecutor(4);
+  }
+  
+  @Override
+  public void destroy() {
+    async.close();
   }
   
   private static void appendJarName(TypedQueryResult result, StringBuilder builder) {
@@ -117,144 +133,195 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveLibrary(Integer libraryID, StringBuilder html) {
+  private void serveLibrary(final Integer libraryID, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a>/<a href=\"./libraries\">libraries</a></p>");
     
-    QueryExecutor exec = db.get().getExecutor();
-    
     html.append("<h3>Library ").append(libraryID).append("</h3>");
     
+    // The sections are independent, so load them concurrently
+    Collection<Future<String>> sections = new ArrayList<>();
+    
     // Library Versions
-    try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE);
-         SelectQuery inner = exec.createSelectQuery(ComponentRelationsTable.SOURCE_ID.compareEquals(ProjectsTable.PROJECT_ID))) {
-      query.addSelect(ComponentRelationsTable.TARGET_ID);
-      query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
-      query.orderBy(ComponentRelationsTable.TARGET_ID, true);
+    sections.add(async.submit(new QueryCallable<String>() {
+      @Override
+      public String call(QueryExecutor exec) {
+        StringBuilder html = new StringBuilder();
+        try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE);
+             SelectQuery inner = exec.createSelectQuery(ComponentRelationsTable.SOURCE_ID.compareEquals(ProjectsTable.PROJECT_ID))) {
+          query.addSelect(ComponentRelationsTable.TARGET_ID);
+          query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
+          query.orderBy(ComponentRelationsTable.TARGET_ID, true);
       
-      inner.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION);
-      ConstantCondition<Integer> innerCond = ComponentRelationsTable.TARGET_ID.compareEquals();
-      inner.andWhere(innerCond.and(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION)));
+          inner.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION);
+          ConstantCondition<Integer> innerCond = ComponentRelationsTable.TARGET_ID.compareEquals();
+          inner.andWhere(innerCond.and(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION)));
       
-      int libraryVersionCount = 0;
-      StringBuilder temp = new StringBuilder();
-      TypedQueryResult result = query.select();
-      while (result.next()) {
-        Integer libraryVersionID = result.getResult(ComponentRelationsTable.TARGET_ID);
-        temp.append("<li>");
-        temp.append("<a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">Library Version ").append(libraryVersionID).append("</a>");
+          int libraryVersionCount = 0;
+          StringBuilder temp = new StringBuilder();
+          TypedQueryResult result = query.select();
+          while (result.next()) {
+            Integer libraryVersionID = result.getResult(ComponentRelationsTable.TARGET_ID);
+            temp.append("<li>");
+            temp.append("<a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">Library Version ").append(libraryVersionID).append("</a>");
         
-        temp.append("<ul>");
-        innerCond.setValue(libraryVersionID);
-        TypedQueryResult innerResult = inner.select();
-        while (innerResult.next()) {
-          Integer jarID = innerResult.getResult(ProjectsTable.PROJECT_ID);
-          temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
-          appendJarName(innerResult, temp);
-          temp.append("</a></li>");
+            temp.append("<ul>");
+            innerCond.setValue(libraryVersionID);
+            TypedQueryResult innerResult = inner.select();
+            while (innerResult.next()) {
+              Integer jarID = innerResult.getResult(ProjectsTable.PROJECT_ID);
+              temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
+              appendJarName(innerResult, temp);
+              temp.append("</a></li>");
+            }
+            temp.append("</ul></li>");
+            libraryVersionCount++;
+          }
+      
+          html.append("<h4>").append(libraryVersionCount).append(" Library Versions</h4>");
+          html.append("<ul>");
+          html.append(temp.toString());
+          html.append("</ul>");
         }
-        temp.append("</ul></li>");
-        libraryVersionCount++;
+        return html.toString();
       }
-      
-      html.append("<h4>").append(libraryVersionCount).append(" Library Versions</h4>");
-      html.append("<ul>");
-      html.append(temp.toString());
-      html.append("</ul>");
-    }
+    }));
     
-    { // Jars
-      QualifiedTable l2lv = ComponentRelationsTable.TABLE.qualify("a");
-      QualifiedTable j2lv = ComponentRelationsTable.TABLE.qualify("b");
+    sections.add(async.submit(new QueryCallable<String>() {
+      @Override
+      public String call(QueryExecutor exec) {
+        StringBuilder html = new StringBuilder();
+        { // Jars
+          QualifiedTable l2lv = ComponentRelationsTable.TABLE.qualify("a");
+          QualifiedTable j2lv = ComponentRelationsTable.TABLE.qualify("b");
       
-      try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TARGET_ID.qualify(l2lv).compareEquals(ComponentRelationsTable.TARGET_ID.qualify(j2lv)), ComponentRelationsTable.SOURCE_ID.qualify(j2lv).compareEquals(ProjectsTable.PROJECT_ID))) {
-        query.addSelect(ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION, ProjectsTable.PROJECT_ID);
-        query.andWhere(ComponentRelationsTable.SOURCE_ID.qualify(l2lv).compareEquals(libraryID), ComponentRelationsTable.TYPE.qualify(l2lv).compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.TYPE.qualify(j2lv).compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION));
-        query.orderBy(ProjectsTable.GROUP, true);
-        query.orderBy(ProjectsTable.NAME, true);
-        query.orderBy(ProjectsTable.VERSION, true);
+          try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TARGET_ID.qualify(l2lv).compareEquals(ComponentRelationsTable.TARGET_ID.qualify(j2lv)), ComponentRelationsTable.SOURCE_ID.qualify(j2lv).compareEquals(ProjectsTable.PROJECT_ID))) {
+            query.addSelect(ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION, ProjectsTable.PROJECT_ID);
+            query.andWhere(ComponentRelationsTable.SOURCE_ID.qualify(l2lv).compareEquals(libraryID), ComponentRelationsTable.TYPE.qualify(l2lv).compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.TYPE.qualify(j2lv).compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION));
+            query.orderBy(ProjectsTable.GROUP, true);
+            query.orderBy(ProjectsTable.NAME, true);
+            query.orderBy(ProjectsTable.VERSION, true);
         
-        StringBuilder temp = new StringBuilder();
-        Integer jarCount = 0;
-        TypedQueryResult result = query.select();
-        while (result.next()) {
-          Integer jarID = result.getResult(ProjectsTable.PROJECT_ID);
-          temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
-          appendJarName(result, temp);
-          temp.append("</a></li>");
-          jarCount++;
+            StringBuilder temp = new StringBuilder();
+            Integer jarCount = 0;
+            TypedQueryResult result = query.select();
+            while (result.next()) {
+              Integer jarID = result.getResult(ProjectsTable.PROJECT_ID);
+              temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
+              appendJarName(result, temp);
+              temp.append("</a></li>");
+              jarCount++;
+            }
+            html.append("<h4>").append(jarCount).append(" Jars</h4>");
+            html.append("<ul>");
+            html.append(temp.toString());
+            html.append("</ul>");
+          }
         }
-        html.append("<h4>").append(jarCount).append(" Jars</h4>");
-        html.append("<ul>");
-        html.append(temp.toString());
-        html.append("</ul>");
+        return html.toString();
       }
-    }
- 
+    }));
+    
     // Contained by Libraries
-    try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
-      query.addSelect(ComponentRelationsTable.SOURCE_ID);
-      query.andWhere(ComponentRelationsTable.TARGET_ID.compareEquals(libraryID), ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_VERSION_CONTAINS_LIBRARY));
-      query.orderBy(ComponentRelationsTable.TARGET_ID, true);   
+    sections.add(async.submit(new QueryCallable<String>() {
+      @Override
+      public String call(QueryExecutor exec) {
+        StringBuilder html = new StringBuilder();
+        try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
+          query.addSelect(ComponentRelationsTable.SOURCE_ID);
+          query.andWhere(ComponentRelationsTable.TARGET_ID.compareEquals(libraryID), ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_VERSION_CONTAINS_LIBRARY));
+          query.orderBy(ComponentRelationsTable.TARGET_ID, true);   
 
-      html.append("<h4>Contained by library versions</h4>");
-      html.append("<ul>");
-      TypedQueryResult result = query.select();
-      while (result.next()) {
-        Integer libraryVersionID = result.getResult(ComponentRelationsTable.SOURCE_ID);
-        html.append("<li><a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">Library Version ").append(libraryVersionID).append("</a></li>");
+          html.append("<h4>Contained by library versions</h4>");
+          html.append("<ul>");
+          TypedQueryResult result = query.select();
+          while (result.next()) {
+            Integer libraryVersionID = result.getResult(ComponentRelationsTable.SOURCE_ID);
+            html.append("<li><a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">Library Version ").append(libraryVersionID).append("</a></li>");
+          }
+          html.append("</ul>");
+        }
+        return html.toString();
       }
-      html.append("</ul>");
-    }
+    }));
     
     // Core Cluster
-    try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
-      query.addSelect(ComponentRelationsTable.TARGET_ID);
-      query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_MATCHES_CLUSTER), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
+    sections.add(async.submit(new QueryCallable<String>() {
+      @Override
+      public String call(QueryExecutor exec) {
+        StringBuilder html = new StringBuilder();
+        try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
+          query.addSelect(ComponentRelationsTable.TARGET_ID);
+          query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_MATCHES_CLUSTER), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
       
-      Integer clusterID = query.select().toSingleton(ComponentRelationsTable.TARGET_ID, true);
-      if (clusterID != null) {
-        html.append("<h4>Core Cluster</h4>");
-        html.append("<ul>");
-        html.append("<li><a href=\"./clusters?clusterID=").append(clusterID).append("\">Cluster ").append(clusterID).append("</a></li>");
-        html.append("</ul>");
+          Integer clusterID = query.select().toSingleton(ComponentRelationsTable.TARGET_ID, true);
+          if (clusterID != null) {
+            html.append("<h4>Core Cluster</h4>");
+            html.append("<ul>");
+            html.append("<li><a href=\"./clusters?clusterID=").append(clusterID).append("\">Cluster ").append(clusterID).append("</a></li>");
+            html.append("</ul>");
+          }
+        }
+        return html.toString();
       }
-    }
+    }));
     
     // Clusters
-    try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
-      query.addSelect(ComponentRelationsTable.TARGET_ID);
-      query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_CLUSTER), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
-      query.orderBy(ComponentRelationsTable.TARGET_ID, true);
+    sections.add(async.submit(new QueryCallable<String>() {
+      @Override
+      public String call(QueryExecutor exec) {
+        StringBuilder html = new StringBuilder();
+        try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
+          query.addSelect(ComponentRelationsTable.TARGET_ID);
+          query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_CLUSTER), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
+          query.orderBy(ComponentRelationsTable.TARGET_ID, true);
       
-      html.append("<h4>Version Clusters</h4>");
-      html.append("<ul>");
-      TypedQueryResult result = query.select();
-      while (result.next()) {
-        Integer clusterID = result.getResult(ComponentRelationsTable.TARGET_ID);
-        html.append("<li><a href=\"./clusters?clusterID=").append(clusterID).append("\">Cluster ").append(clusterID).append("</a></li>");
+          html.append("<h4>Version Clusters</h4>");
+          html.append("<ul>");
+          TypedQueryResult result = query.select();
+          while (result.next()) {
+            Integer clusterID = result.getResult(ComponentRelationsTable.TARGET_ID);
+            html.append("<li><a href=\"./clusters?clusterID=").append(clusterID).append("\">Cluster ").append(clusterID).append("</a></li>");
+          }
+          html.append("</ul>");
+        }
+        return html.toString();
       }
-      html.append("</ul>");
-    }
+    }));
     
-    { // FQNs
-      QualifiedTable l2lv = ComponentRelationsTable.TABLE.qualify("a");
-      QualifiedTable lv2tv = ComponentRelationsTable.TABLE.qualify("b");
+    sections.add(async.submit(new QueryCallable<String>() {
+      @Override
+      public String call(QueryExecutor exec) {
+        StringBuilder html = new StringBuilder();
+        { // FQNs
+          QualifiedTable l2lv = ComponentRelationsTable.TABLE.qualify("a");
+          QualifiedTable lv2tv = ComponentRelationsTable.TABLE.qualify("b");
       
-      try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TARGET_ID.qualify(l2lv).compareEquals(ComponentRelationsTable.SOURCE_ID.qualify(lv2tv)), ComponentRelationsTable.TARGET_ID.qualify(lv2tv).compareEquals(TypeVersionsTable.TYPE_VERSION_ID), TypeVersionsTable.TYPE_ID.compareEquals(TypesTable.TYPE_ID))) {
-        query.setDistinct(true);
-        query.addSelect(TypesTable.FQN, TypesTable.TYPE_ID);
-        query.andWhere(ComponentRelationsTable.SOURCE_ID.qualify(l2lv).compareEquals(libraryID), ComponentRelationsTable.TYPE.qualify(l2lv).compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.TYPE.qualify(lv2tv).compareEquals(ComponentRelation.LIBRARY_VERSION_CONTAINS_TYPE_VERSION));
-        query.orderBy(TypesTable.FQN, true);
+          try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TARGET_ID.qualify(l2lv).compareEquals(ComponentRelationsTable.SOURCE_ID.qualify(lv2tv)), ComponentRelationsTable.TARGET_ID.qualify(lv2tv).compareEquals(TypeVersionsTable.TYPE_VERSION_ID), TypeVersionsTable.TYPE_ID.compareEquals(TypesTable.TYPE_ID))) {
+            query.setDistinct(true);
+            query.addSelect(TypesTable.FQN, TypesTable.TYPE_ID);
+            query.andWhere(ComponentRelationsTable.SOURCE_ID.qualify(l2lv).compareEquals(libraryID), ComponentRelationsTable.TYPE.qualify(l2lv).compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.TYPE.qualify(lv2tv).compareEquals(ComponentRelation.LIBRARY_VERSION_CONTAINS_TYPE_VERSION));
+            query.orderBy(TypesTable.FQN, true);
         
-        html.append("<h4>FQNs</h4>");
-        html.append("<ul>");
-        TypedQueryResult result = query.select();
-        while (result.next()) {
-          Integer fqnID = result.getResult(TypesTable.TYPE_ID);
-          String fqn = result.getResult(TypesTable.FQN);
-          html.append("<li><a href=\"./fqns?fqnID=").append(fqnID).append("\">").append(fqn).append("</a></li>");
+            html.append("<h4>FQNs</h4>");
+            html.append("<ul>");
+            TypedQueryResult result = query.select();
+            while (result.next()) {
+              Integer fqnID = result.getResult(TypesTable.TYPE_ID);
+              String fqn = result.getResult(TypesTable.FQN);
+              html.append("<li><a href=\"./fqns?fqnID=").append(fqnID).append("\">").append(fqn).append("</a></li>");
+            }
+            html.append("</ul>");
+          }
         }
-        html.append("</ul>");
+        return html.toString();
+      }
+    }));
+    
+    for (Future<String> section : sections) {
+      try {
+        html.append(section.get());
+      } catch (InterruptedException | ExecutionException e) {
+        logger.log(Level.SEVERE, "Error loading library section", e);
       }
     }
   }
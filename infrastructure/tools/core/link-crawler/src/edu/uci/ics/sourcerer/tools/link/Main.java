@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.tools.link;
 import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryFactory;
 import edu.uci.ics.sourcerer.tools.link.crawler.flossmole.FlossmoleCrawler;
 import edu.uci.ics.sourcerer.tools.link.crawler.sourceforge.SourceForgeCrawler;
+import edu.uci.ics.sourcerer.tools.link.downloader.ParallelDownloader;
 import edu.uci.ics.sourcerer.tools.link.downloader.RepoBuilder;
 import edu.uci.ics.sourcerer.tools.link.downloader.Subversion;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
@@ -66,7 +67,7 @@ public class Main {
     protected void action() {
       RepoBuilder.downloadProjectContent();
     }
-  }.setProperties(RepositoryFactory.INPUT_REPO);
+  }.setProperties(RepositoryFactory.INPUT_REPO, ParallelDownloader.DOWNLOAD_THREADS, ParallelDownloader.MAX_DOWNLOADS_PER_HOST, ParallelDownloader.DOWNLOAD_RETRIES, ParallelDownloader.RETRY_DELAY);
   
   public static final Command INTERACTIVE_REPO_ADDER = new Command("interactive-repo-adder", "Tool for manually adding projects to the repository.") {
     @Override
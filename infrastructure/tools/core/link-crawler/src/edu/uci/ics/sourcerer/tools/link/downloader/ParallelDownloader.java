@@ -0,0 +1,216 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Runs downloads concurrently, limiting how many hit the same host at
+ * once and retrying failures with exponential backoff.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ParallelDownloader {
+  public static final Argument<Integer> DOWNLOAD_THREADS = new IntegerArgument("download-threads", 8, "Maximum number of downloads running at once.");
+  public static final Argument<Integer> MAX_DOWNLOADS_PER_HOST = new IntegerArgument("max-downloads-per-host", 2, "Maximum number of downloads running at once from a single host.");
+  public static final Argument<Integer> DOWNLOAD_RETRIES = new IntegerArgument("download-retries", 3, "Number of times a failed download is retried.");
+  public static final Argument<Integer> RETRY_DELAY = new IntegerArgument("retry-delay", 30, "Seconds before a failed download is retried, doubling with each retry.");
+  
+  private ParallelDownloader() {}
+  
+  public static abstract class Download {
+    private final String host;
+    private int attempts;
+    private int retries;
+    private long retryTime;
+    
+    /**
+     * Attempts counts the failures from earlier runs.
+     */
+    protected Download(String url, int attempts) {
+      this.host = parseHost(url);
+      this.attempts = attempts;
+    }
+    
+    /**
+     * Makes a single attempt at the download.
+     */
+    protected abstract boolean download();
+    
+    public String getHost() {
+      return host;
+    }
+  }
+  
+  static String parseHost(String url) {
+    try {
+      String host = new URI(url).getHost();
+      if (host != null) {
+        return host.toLowerCase();
+      }
+    } catch (URISyntaxException e) {}
+    // CVS roots look like :pserver:user@host:/path
+    int at = url.lastIndexOf('@');
+    if (at >= 0) {
+      int end = url.indexOf(':', at);
+      return (end == -1 ? url.substring(at + 1) : url.substring(at + 1, end)).toLowerCase();
+    } else {
+      return "";
+    }
+  }
+  
+  public static void download(Collection<? extends Download> downloads) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Downloading " + downloads.size() + " projects", "projects downloaded");
+    
+    int threads = Math.max(1, DOWNLOAD_THREADS.getValue());
+    int perHost = Math.max(1, MAX_DOWNLOADS_PER_HOST.getValue());
+    int maxRetries = DOWNLOAD_RETRIES.getValue();
+    long retryDelay = TimeUnit.SECONDS.toMillis(RETRY_DELAY.getValue());
+    
+    // Each host gets its own queue, so a busy host doesn't hold up the rest
+    Map<String, Queue<Download>> queues = new LinkedHashMap<>();
+    for (Download download : downloads) {
+      Queue<Download> queue = queues.get(download.host);
+      if (queue == null) {
+        queue = new LinkedList<>();
+        queues.put(download.host, queue);
+      }
+      queue.add(download);
+    }
+    Queue<Download> retrying = new PriorityQueue<>(11, new Comparator<Download>() {
+      @Override
+      public int compare(Download o1, Download o2) {
+        return Long.compare(o1.retryTime, o2.retryTime);
+      }
+    });
+    Map<String, Integer> active = new HashMap<>();
+    
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+      
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "downloader-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    CompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+    Map<Future<Boolean>, Download> running = new HashMap<>();
+    int succeeded = 0;
+    int failed = 0;
+    try {
+      while (!queues.isEmpty() || !retrying.isEmpty() || !running.isEmpty()) {
+        long now = System.currentTimeMillis();
+        while (!retrying.isEmpty() && retrying.peek().retryTime <= now) {
+          Download download = retrying.poll();
+          Queue<Download> queue = queues.get(download.host);
+          if (queue == null) {
+            queue = new LinkedList<>();
+            queues.put(download.host, queue);
+          }
+          queue.add(download);
+        }
+        
+        // Start as many downloads as the limits allow
+        for (Iterator<Map.Entry<String, Queue<Download>>> iter = queues.entrySet().iterator(); iter.hasNext() && running.size() < threads;) {
+          Map.Entry<String, Queue<Download>> entry = iter.next();
+          Integer count = active.get(entry.getKey());
+          int hostCount = count == null ? 0 : count;
+          while (hostCount < perHost && running.size() < threads && !entry.getValue().isEmpty()) {
+            final Download download = entry.getValue().poll();
+            running.put(completion.submit(new Callable<Boolean>() {
+              @Override
+              public Boolean call() {
+                return download.download();
+              }
+            }), download);
+            hostCount++;
+          }
+          active.put(entry.getKey(), hostCount);
+          if (entry.getValue().isEmpty()) {
+            iter.remove();
+          }
+        }
+        
+        // Wait for a download to finish or the next retry to be due
+        Future<Boolean> done = null;
+        if (retrying.isEmpty()) {
+          done = completion.take();
+        } else {
+          done = completion.poll(Math.max(0, retrying.peek().retryTime - now), TimeUnit.MILLISECONDS);
+        }
+        if (done != null) {
+          Download download = running.remove(done);
+          active.put(download.host, active.get(download.host) - 1);
+          boolean success = false;
+          try {
+            success = done.get();
+          } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "Error downloading from " + download.host, e.getCause());
+          }
+          if (success) {
+            succeeded++;
+            task.progress();
+          } else if (++download.attempts <= maxRetries) {
+            download.retryTime = System.currentTimeMillis() + (retryDelay << download.retries++);
+            retrying.add(download);
+          } else {
+            failed++;
+            task.progress();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted while downloading", e);
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+    task.report(succeeded + " downloaded, " + failed + " failed after " + (maxRetries + 1) + " attempts");
+    task.finish();
+  }
+}
@@ -21,6 +21,8 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceBatch;
@@ -87,11 +89,9 @@ public final class RepoBuilder {
     ModifiableSourceRepository repo = RepositoryFactory.INSTANCE.loadModifiableSourceRepository(RepositoryFactory.INPUT_REPO);
     
     TaskProgressLogger task = TaskProgressLogger.get();
-    task.start("Downloading projects", "projects downloaded");
+    task.start("Downloading project content");
     
-    SimpleDateFormat format = new SimpleDateFormat("MMM-dd-yyyy");
-
-    DeletionFilter deleter = new DeletionFilter() {
+    final DeletionFilter deleter = new DeletionFilter() {
       @Override
       public boolean shouldDelete(RepoFile file) {
         if (file.isDirectory()) {
@@ -103,40 +103,76 @@ public final class RepoBuilder {
       }
     };
     
+    // Projects already downloaded, or that failed on every attempt, are skipped
+    int maxRetries = ParallelDownloader.DOWNLOAD_RETRIES.getValue();
+    int failed = 0;
+    Collection<ParallelDownloader.Download> downloads = new ArrayList<>();
     for (final ModifiableSourceProject project : repo.getProjects()) {
       if (!project.hasContent() || project.getProperties().DOWNLOAD_DATE.getValue() == null) {
-        task.start("Downloading content for " + project.getProperties().NAME.getValue() + " (" + project.getLocation() + ")");
-        if (project.hasContent()) {
-          project.deleteContent();
+        Integer attempts = project.getProperties().DOWNLOAD_ATTEMPTS.getValue();
+        String url = project.getProperties().SVN_URL.getValue();
+        if (url == null) {
+          url = project.getProperties().CVS_URL.getValue();
         }
-        ContentAdder adder = new ContentAdder() {
-          @Override
-          public boolean addContent(File file) {
-            String url = project.getProperties().SVN_URL.getValue(); 
-            if (url != null) {
-              return Downloader.download(Downloader.Type.SVN, url, file);
-            } 
-            url = project.getProperties().CVS_URL.getValue();
-            if (url != null) {
-              return Downloader.download(Downloader.Type.CVS, url, file);
+        if (url == null) {
+          logger.severe("No url for " + project);
+        } else if (attempts != null && attempts > maxRetries) {
+          failed++;
+        } else {
+          downloads.add(new ParallelDownloader.Download(url, attempts == null ? 0 : attempts) {
+            @Override
+            protected boolean download() {
+              return downloadProject(project, deleter);
             }
-            logger.severe("No url for " + project);
-            return false;
-          }
-        };
-        if (project.addContent(adder)) {
-          // Delete the extra stuff
-          task.start("Cleaning out extra stuff");
-          project.delete(deleter);
-          task.finish();
-          project.getProperties().DOWNLOAD_DATE.setValue(format.format(new Date()).toLowerCase());
-          project.getProperties().save();
+          });
+        }
+      }
+    }
+    if (failed > 0) {
+      task.report("Skipping " + failed + " projects that previously failed to download");
+    }
+    ParallelDownloader.download(downloads);
+    task.finish();
+  }
+  
+  private static boolean downloadProject(final ModifiableSourceProject project, DeletionFilter deleter) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Downloading content for " + project.getProperties().NAME.getValue() + " (" + project.getLocation() + ")");
+    if (project.hasContent()) {
+      project.deleteContent();
+    }
+    ContentAdder adder = new ContentAdder() {
+      @Override
+      public boolean addContent(File file) {
+        String url = project.getProperties().SVN_URL.getValue(); 
+        if (url != null) {
+          return Downloader.download(Downloader.Type.SVN, url, file);
+        } 
+        url = project.getProperties().CVS_URL.getValue();
+        if (url != null) {
+          return Downloader.download(Downloader.Type.CVS, url, file);
         }
-        task.finish();
+        logger.severe("No url for " + project);
+        return false;
       }
-      task.progress();
+    };
+    SourceProjectProperties props = project.getProperties();
+    boolean success = project.addContent(adder);
+    if (success) {
+      // Delete the extra stuff
+      task.start("Cleaning out extra stuff");
+      project.delete(deleter);
+      task.finish();
+      props.DOWNLOAD_DATE.setValue(new SimpleDateFormat("MMM-dd-yyyy").format(new Date()).toLowerCase());
+    } else {
+      // Don't leave a partial checkout behind, and remember the failure for later runs
+      project.deleteContent();
+      Integer attempts = props.DOWNLOAD_ATTEMPTS.getValue();
+      props.DOWNLOAD_ATTEMPTS.setValue(attempts == null ? 1 : attempts + 1);
     }
+    props.save();
     task.finish();
+    return success;
   }
   
   public static void cleanVersioningContent() {
@@ -35,6 +35,7 @@ import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
 import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
@@ -291,6 +292,7 @@ public final class Subversion {
   
   public static boolean checkout(String url, File target) {
     DAVRepositoryFactory.setup();
+    FSRepositoryFactory.setup();
     
     SVNClientManager manager = SVNClientManager.newInstance();
     try {
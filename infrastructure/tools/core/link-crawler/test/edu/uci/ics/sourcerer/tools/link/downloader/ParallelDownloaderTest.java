@@ -0,0 +1,223 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceBatch;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceRepository;
+import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryFactory;
+import edu.uci.ics.sourcerer.tools.core.repo.model.SourceProject;
+import edu.uci.ics.sourcerer.tools.core.repo.model.SourceProjectProperties;
+import edu.uci.ics.sourcerer.tools.core.repo.model.SourceRepository;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class ParallelDownloaderTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(
+      RepositoryFactory.INPUT_REPO,
+      ParallelDownloader.DOWNLOAD_THREADS,
+      ParallelDownloader.MAX_DOWNLOADS_PER_HOST,
+      ParallelDownloader.DOWNLOAD_RETRIES,
+      ParallelDownloader.RETRY_DELAY);
+  
+  private File folder;
+  
+  @Before
+  public void initialize() throws IOException {
+    // Initializes the logging
+    Command.execute(new String[] { "--test" }, ParallelDownloaderTest.class);
+    ParallelDownloader.DOWNLOAD_THREADS.setValue(4);
+    ParallelDownloader.MAX_DOWNLOADS_PER_HOST.setValue(2);
+    ParallelDownloader.DOWNLOAD_RETRIES.setValue(2);
+    ParallelDownloader.RETRY_DELAY.setValue(0);
+    folder = Files.createTempDirectory("downloader-test").toFile();
+  }
+  
+  @After
+  public void cleanUp() {
+    FileUtils.delete(folder);
+  }
+  
+  private static class CountingDownload extends ParallelDownloader.Download {
+    private static final Map<String, Integer> active = new HashMap<>();
+    private static final Map<String, Integer> maxActive = new HashMap<>();
+    
+    private final int failures;
+    private int tries;
+    
+    private CountingDownload(String url, int attempts, int failures) {
+      super(url, attempts);
+      this.failures = failures;
+    }
+    
+    private static synchronized int change(String host, int delta) {
+      Integer count = active.get(host);
+      count = (count == null ? 0 : count) + delta;
+      active.put(host, count);
+      Integer max = maxActive.get(host);
+      if (max == null || count > max) {
+        maxActive.put(host, count);
+      }
+      return count;
+    }
+    
+    @Override
+    protected boolean download() {
+      change(getHost(), 1);
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      change(getHost(), -1);
+      return ++tries > failures;
+    }
+  }
+  
+  @Test
+  public void testParseHost() {
+    Assert.assertEquals("svn.example.org", ParallelDownloader.parseHost("http://SVN.example.org/repos/foo"));
+    Assert.assertEquals("cvs.example.org", ParallelDownloader.parseHost(":pserver:anonymous@cvs.example.org:/cvsroot/foo"));
+    Assert.assertEquals("", ParallelDownloader.parseHost("file:///tmp/svn/foo"));
+  }
+  
+  @Test
+  public void testPerHostLimit() {
+    CountingDownload.active.clear();
+    CountingDownload.maxActive.clear();
+    List<CountingDownload> downloads = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      downloads.add(new CountingDownload("http://host" + (i % 3) + ".org/svn/p" + i, 0, 0));
+    }
+    ParallelDownloader.download(downloads);
+    
+    for (CountingDownload download : downloads) {
+      Assert.assertEquals(1, download.tries);
+    }
+    Assert.assertEquals(3, CountingDownload.maxActive.size());
+    for (Integer max : CountingDownload.maxActive.values()) {
+      Assert.assertEquals(2, max.intValue());
+    }
+  }
+  
+  @Test
+  public void testRetries() {
+    CountingDownload broken = new CountingDownload("http://broken.org/svn", 0, Integer.MAX_VALUE);
+    CountingDownload resumed = new CountingDownload("http://resumed.org/svn", 1, Integer.MAX_VALUE);
+    CountingDownload flaky = new CountingDownload("http://flaky.org/svn", 0, 1);
+    ParallelDownloader.download(Arrays.asList(broken, resumed, flaky));
+    
+    // One attempt plus two retries, less the failures from earlier runs
+    Assert.assertEquals(3, broken.tries);
+    Assert.assertEquals(2, resumed.tries);
+    Assert.assertEquals(2, flaky.tries);
+  }
+  
+  @Test
+  public void testDownloadProjectContent() throws Exception {
+    FSRepositoryFactory.setup();
+    SVNClientManager manager = SVNClientManager.newInstance();
+    Collection<String> urls = new ArrayList<>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        SVNURL url = SVNRepositoryFactory.createLocalRepository(new File(folder, "svn/r" + i), true, false);
+        File src = new File(folder, "src/r" + i);
+        new File(src, "trunk/src/pkg").mkdirs();
+        new File(src, "tags/v1").mkdirs();
+        new File(src, "branches/b1").mkdirs();
+        Files.write(new File(src, "trunk/src/pkg/Foo.java").toPath(), "class Foo {}".getBytes());
+        Files.write(new File(src, "tags/v1/old.txt").toPath(), "old".getBytes());
+        manager.getCommitClient().doImport(src, url, "import", null, false, true, SVNDepth.INFINITY);
+        urls.add(url.toString());
+      }
+    } finally {
+      manager.dispose();
+    }
+    String badUrl = "file://" + new File(folder, "svn/missing").getAbsolutePath();
+    urls.add(badUrl);
+    
+    RepositoryFactory.INPUT_REPO.setValue(new File(folder, "repo"));
+    {
+      ModifiableSourceRepository repo = RepositoryFactory.INSTANCE.loadModifiableSourceRepository(RepositoryFactory.INPUT_REPO);
+      ModifiableSourceBatch batch = repo.createBatch();
+      for (String url : urls) {
+        ModifiableSourceProject project = batch.createProject();
+        project.getProperties().NAME.setValue(url);
+        project.getProperties().SVN_URL.setValue(url);
+        project.getProperties().save();
+      }
+    }
+    
+    RepoBuilder.downloadProjectContent();
+    checkDownloads(badUrl);
+    
+    // A second run skips both the downloaded projects and the one that ran out of retries
+    FileUtils.delete(new File(folder, "svn"));
+    RepoBuilder.downloadProjectContent();
+    checkDownloads(badUrl);
+  }
+  
+  private void checkDownloads(String badUrl) {
+    SourceRepository repo = RepositoryFactory.INSTANCE.loadSourceRepository(RepositoryFactory.INPUT_REPO);
+    Assert.assertEquals(4, repo.getProjects().size());
+    for (SourceProject project : repo.getProjects()) {
+      SourceProjectProperties props = project.getProperties();
+      File content = new File(project.getLocation().getProjectRoot().toFile(), SourceProject.PROJECT_CONTENT.getValue());
+      if (badUrl.equals(props.SVN_URL.getValue())) {
+        Assert.assertFalse(project.hasContent());
+        Assert.assertNull(props.DOWNLOAD_DATE.getValue());
+        Assert.assertEquals(3, props.DOWNLOAD_ATTEMPTS.getValue().intValue());
+      } else {
+        Assert.assertTrue(project.hasContent());
+        Assert.assertNotNull(props.DOWNLOAD_DATE.getValue());
+        Assert.assertNull(props.DOWNLOAD_ATTEMPTS.getValue());
+        Assert.assertTrue(new File(content, "trunk/src/pkg/Foo.java").isFile());
+        Assert.assertFalse(new File(content, "tags").exists());
+        Assert.assertFalse(new File(content, "branches").exists());
+      }
+    }
+  }
+}
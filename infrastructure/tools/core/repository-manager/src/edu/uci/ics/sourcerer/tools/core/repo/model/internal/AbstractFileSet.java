@@ -26,6 +26,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.FileSet;
@@ -36,6 +39,7 @@ import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.SimpleDeserializer;
 import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 
 /**
@@ -44,6 +48,9 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 public abstract class AbstractFileSet implements FileSet {
   public static final Argument<String> CACHE_DIR = new StringArgument("cache-dir", "cache", "Directory containing project cache files.").permit();
   public static final Argument<String> FILE_CACHE = new StringArgument("file-cache-file", "file-cache.txt", "Cache of the file set's files.").permit();
+  public static final Argument<Integer> WALK_THREADS = new IntegerArgument("walk-threads", 8, "Number of threads used to walk a project's files, 1 to walk sequentially.").permit();
+  
+  private static ForkJoinPool walkPool;
   
   protected final File cacheDir;
   private final File cache;
@@ -51,11 +58,15 @@ public abstract class AbstractFileSet implements FileSet {
   private Collection<ContentFileImpl> files;
   
   protected AbstractFileSet(AbstractSourceProject<?, ?> project) {
-    cacheDir = project.getLocation().getProjectRoot().getChildFile(CACHE_DIR.getValue());
+    cacheDir = getCacheDir(project);
     cache = new File(cacheDir, FILE_CACHE.getValue());
     root = ContentDirectoryImpl.makeRoot(project.getContentFile());
   }
   
+  static File getCacheDir(AbstractSourceProject<?, ?> project) {
+    return project.getLocation().getProjectRoot().getChildFile(CACHE_DIR.getValue());
+  }
+  
   public void delete(DeletionFilter filter) {
     init(false, false);
     Deque<RepoFileImpl> stack = new LinkedList<>();
@@ -103,31 +114,8 @@ public abstract class AbstractFileSet implements FileSet {
 
   protected void populateFileSet() {
     if (AbstractRepository.CLEAR_CACHES.getValue() || !cache.exists() || !readCache()) {
-      Deque<RepoFileImpl> stack = new LinkedList<>();
-      stack.add(root.getFile());
-      while (!stack.isEmpty()) {
-        RepoFileImpl dir = stack.pop();
-        Collection<RepoFileImpl> children = dir.getChildren();
-        // See if this directory has a "trunk"
-        RepoFileImpl trunk = null;
-        for (RepoFileImpl child : children) {
-          if (child.isDirectory() && child.getName().equals("trunk")) {
-            trunk = child;
-            break;
-          }
-        }
-        // If there's a trunk, follow only that
-        if (trunk != null) {
-          stack.push(trunk);
-        } else {
-          for (RepoFileImpl child : children) {          
-            if (child.isDirectory()) {
-              stack.push(child);
-            } else {
-              addFile(child);
-            }
-          }
-        }
+      for (RepoFileImpl file : walk(root.getFile())) {
+        addFile(file);
       }
       
       cache.getParentFile().mkdirs();
@@ -145,6 +133,83 @@ public abstract class AbstractFileSet implements FileSet {
     }
   }
  
+  private static List<RepoFileImpl> walk(RepoFileImpl rootDir) {
+    if (WALK_THREADS.getValue() > 1) {
+      return getWalkPool().invoke(new WalkTask(rootDir));
+    }
+    List<RepoFileImpl> files = new ArrayList<>();
+    Deque<RepoFileImpl> stack = new LinkedList<>();
+    stack.add(rootDir);
+    while (!stack.isEmpty()) {
+      RepoFileImpl dir = stack.pop();
+      Collection<RepoFileImpl> children = dir.getChildren();
+      RepoFileImpl trunk = findTrunk(children);
+      // If there's a trunk, follow only that
+      if (trunk != null) {
+        stack.push(trunk);
+      } else {
+        for (RepoFileImpl child : children) {          
+          if (child.isDirectory()) {
+            stack.push(child);
+          } else {
+            files.add(child);
+          }
+        }
+      }
+    }
+    return files;
+  }
+  
+  private static RepoFileImpl findTrunk(Collection<RepoFileImpl> children) {
+    for (RepoFileImpl child : children) {
+      if (child.getName().equals("trunk") && child.isDirectory()) {
+        return child;
+      }
+    }
+    return null;
+  }
+  
+  private static synchronized ForkJoinPool getWalkPool() {
+    if (walkPool == null) {
+      walkPool = new ForkJoinPool(WALK_THREADS.getValue());
+    }
+    return walkPool;
+  }
+  
+  private static class WalkTask extends RecursiveTask<List<RepoFileImpl>> {
+    private static final long serialVersionUID = 1L;
+    
+    private final RepoFileImpl dir;
+    
+    private WalkTask(RepoFileImpl dir) {
+      this.dir = dir;
+    }
+    
+    @Override
+    protected List<RepoFileImpl> compute() {
+      Collection<RepoFileImpl> children = dir.getChildren();
+      RepoFileImpl trunk = findTrunk(children);
+      if (trunk != null) {
+        return new WalkTask(trunk).compute();
+      }
+      List<RepoFileImpl> files = new ArrayList<>();
+      List<WalkTask> tasks = new ArrayList<>();
+      for (RepoFileImpl child : children) {
+        if (child.isDirectory()) {
+          tasks.add(new WalkTask(child));
+        } else {
+          files.add(child);
+        }
+      }
+      invokeAll(tasks);
+      // The sequential walk pops subdirectories off a stack, so match its order
+      for (int i = tasks.size() - 1; i >= 0; i--) {
+        files.addAll(tasks.get(i).join());
+      }
+      return files;
+    }
+  }
+  
   private boolean readCache() {
     try (SimpleDeserializer reader = IOUtils.makeSimpleDeserializer(cache)) {
       for (RepoFileImpl file : reader.deserializeToIterable(root.getFile().makeDeserializer(), false)) {
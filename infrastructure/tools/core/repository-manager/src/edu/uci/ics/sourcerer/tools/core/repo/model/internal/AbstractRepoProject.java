@@ -63,6 +63,14 @@ public abstract class AbstractRepoProject<Repo extends AbstractRepository<?, ?>,
   
   protected abstract Properties makeProperties(RepoFileImpl propFile);
   
+  /**
+   * Called during a full rescan, or when the project directory is touched,
+   * to drop anything that may be stale.
+   */
+  protected void reconcile() {
+    properties.clear();
+  }
+  
   @Override
   public String toString() {
     return loc.toString();
@@ -21,26 +21,37 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
 import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryProperties;
-import edu.uci.ics.sourcerer.util.io.EntryWriter;
-import edu.uci.ics.sourcerer.util.io.IOUtils;
-import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
+import edu.uci.ics.sourcerer.util.io.DirectoryWatcher;
+import edu.uci.ics.sourcerer.util.io.MappedIndex;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public abstract class AbstractRepository<Project extends AbstractRepoProject<? extends AbstractRepository<Project, Batch>, ?>, Batch extends BatchImpl<Project>> {
   public static final Argument<String> REPO_PROPERTIES = new StringArgument("repo-properties-file", "repo.properties", "File name for repo properties file.").permit();
-  public static final Argument<String> PROJECT_CACHE = new StringArgument("project-cache-file", "project-cache.txt", "File containing a cached list of the projects.").permit();
+  public static final Argument<String> PROJECT_CACHE = new StringArgument("project-cache-file", "project-cache.idx", "File containing a cached list of the projects.").permit();
   public static final Argument<Boolean> CLEAR_CACHES = new BooleanArgument("clear-caches", false, "Clear all repository caches.").permit();
+  public static final Argument<Integer> RECONCILE_INTERVAL = new IntegerArgument("reconcile-interval", 60, "Minutes between full rescans of the repository while watching it for changes.").permit();
+  
+  private static final Pattern NUMBER = Pattern.compile("\\d*");
+  private static final long QUIET_PERIOD = 2000;
   
   protected RepoFileImpl repoRoot;
   protected RepositoryProperties properties;
@@ -66,45 +77,179 @@ public abstract class AbstractRepository<Project extends AbstractRepoProject<? e
   
   private final void populateProjects() {
     if (batchSet == null) {
-      batchSet = new BatchSetImpl<Project, Batch>(this);
-      cache = repoRoot.getChild(PROJECT_CACHE.getValue());
-      if (repoRoot.exists()) {
-        if (cache.exists() && !CLEAR_CACHES.getValue()) {
-          try {
-            for (ProjectLocationImpl loc : IOUtils.deserialize(ProjectLocationImpl.class, cache.toFile(), true)) {
-              batchSet.add(loc.getBatchNumber(), loc.getCheckoutNumber());
-            }
-            return;
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Unable to load project cache: " + cache.toString(), e);
+      populateProjects(!CLEAR_CACHES.getValue());
+    }
+  }
+  
+  private void populateProjects(boolean useCache) {
+    batchSet = new BatchSetImpl<Project, Batch>(this);
+    cache = repoRoot.getChild(PROJECT_CACHE.getValue());
+    if (repoRoot.exists()) {
+      // Adding a batch changes the root's directory count and adding a checkout touches its batch directory, either invalidates the cache
+      long stamp = MappedIndex.directoryStamp(repoRoot.toFile());
+      if (useCache) {
+        MappedIndex index = MappedIndex.open(cache.toFile(), stamp);
+        if (index != null) {
+          for (int i = 0, max = index.size(); i < max; i++) {
+            String loc = index.getKey(i);
+            int slash = loc.indexOf('/');
+            batchSet.add(Integer.valueOf(loc.substring(0, slash)), Integer.valueOf(loc.substring(slash + 1)));
           }
+          return;
         }
-        Pattern pattern = Pattern.compile("\\d*");
-        for (File batch : repoRoot.toFile().listFiles()) {
-          if (batch.isDirectory() && pattern.matcher(batch.getName()).matches()) {
-            for (File checkout : batch.listFiles()) {
-              if (pattern.matcher(checkout.getName()).matches()) {
-                batchSet.add(Integer.valueOf(batch.getName()), Integer.valueOf(checkout.getName()));
-              }
+      }
+      for (File batch : repoRoot.toFile().listFiles()) {
+        if (batch.isDirectory() && NUMBER.matcher(batch.getName()).matches()) {
+          for (File checkout : batch.listFiles()) {
+            if (NUMBER.matcher(checkout.getName()).matches()) {
+              batchSet.add(Integer.valueOf(batch.getName()), Integer.valueOf(checkout.getName()));
             }
           }
         }
-        SimpleSerializer writer = null;
-        EntryWriter<ProjectLocationImpl> ew = null;
-        try {
-          writer = IOUtils.makeSimpleSerializer(cache.toFile());
-          ew = writer.getEntryWriter(ProjectLocationImpl.class);
-          for (Project project : getProjects()) {
-            ew.write(project.getLocation());
-          }
-        } catch (IOException e) {
-          logger.log(Level.SEVERE, "Unable to write project cache.", e);
-        } finally {
-          IOUtils.close(ew);
-          IOUtils.close(writer);
+      }
+      writeProjectCache(stamp);
+    }
+  }
+  
+  private void writeProjectCache(long stamp) {
+    Map<String, String> entries = new HashMap<>();
+    for (Project project : getProjects()) {
+      entries.put(project.getLocation().toString(), "");
+    }
+    try {
+      MappedIndex.write(cache.toFile(), stamp, entries);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write project cache.", e);
+    }
+  }
+  
+  /**
+   * Keeps the repository caches current by applying file system changes
+   * as they're reported, rescanning the whole repository every reconcile
+   * interval and whenever events are lost. Runs until interrupted.
+   */
+  public void watch() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Watching " + repoRoot.toFile().getPath() + " for changes");
+    long interval = TimeUnit.MINUTES.toMillis(RECONCILE_INTERVAL.getValue());
+    try (DirectoryWatcher watcher = DirectoryWatcher.create()) {
+      reconcile(watcher);
+      long nextReconcile = System.currentTimeMillis() + interval;
+      while (!Thread.currentThread().isInterrupted()) {
+        Set<File> changed = watcher.poll(nextReconcile - System.currentTimeMillis(), QUIET_PERIOD);
+        if (changed == null) {
+          task.report("Change events were lost");
+          nextReconcile = 0;
+        } else if (!changed.isEmpty()) {
+          applyChanges(watcher, changed);
+        }
+        if (System.currentTimeMillis() >= nextReconcile) {
+          reconcile(watcher);
+          nextReconcile = System.currentTimeMillis() + interval;
         }
       }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to watch repository.", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    task.finish();
+  }
+  
+  /**
+   * Rebuilds the caches from scratch and registers every directory that
+   * needs watching.
+   */
+  protected void reconcile(DirectoryWatcher watcher) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Rescanning repository");
+    populateProjects(false);
+    watcher.register(repoRoot.toFile());
+    for (File batch : repoRoot.toFile().listFiles()) {
+      if (batch.isDirectory() && NUMBER.matcher(batch.getName()).matches()) {
+        watcher.register(batch);
+      }
+    }
+    // There can be far more projects than the system allows watches, so their contents are only checked here
+    for (Project project : getProjects()) {
+      project.reconcile();
+    }
+    task.report(getProjectCount() + " projects found");
+    task.finish();
+  }
+  
+  /**
+   * Applies a set of changed paths to the caches.
+   */
+  protected void applyChanges(DirectoryWatcher watcher, Collection<File> changed) {
+    String root = repoRoot.toFile().getPath() + File.separatorChar;
+    Set<Integer> changedBatches = new HashSet<>();
+    Collection<String[]> changedProjects = new ArrayList<>();
+    for (File file : changed) {
+      String path = file.getPath();
+      if (path.startsWith(root)) {
+        String[] parts = path.substring(root.length()).split(Pattern.quote(File.separator));
+        if (parts.length == 1 && NUMBER.matcher(parts[0]).matches()) {
+          changedBatches.add(Integer.valueOf(parts[0]));
+        } else if (parts.length == 2 && NUMBER.matcher(parts[0]).matches() && NUMBER.matcher(parts[1]).matches()) {
+          changedBatches.add(Integer.valueOf(parts[0]));
+          changedProjects.add(parts);
+        } else {
+          applyChange(watcher, parts);
+        }
+      }
+    }
+    boolean modified = false;
+    for (Integer batch : changedBatches) {
+      modified |= syncBatch(watcher, batch);
+    }
+    if (modified) {
+      writeProjectCache(MappedIndex.directoryStamp(repoRoot.toFile()));
+    }
+    // Project directories themselves aren't watched, but touching one is reported by its batch
+    for (String[] parts : changedProjects) {
+      Project project = getProject(Integer.valueOf(parts[0]), Integer.valueOf(parts[1]));
+      if (project != null) {
+        project.reconcile();
+      }
+    }
+  }
+  
+  /**
+   * Applies a changed path that's outside of the project directories.
+   */
+  protected void applyChange(DirectoryWatcher watcher, String[] path) {}
+  
+  private boolean syncBatch(DirectoryWatcher watcher, Integer batch) {
+    if (batchSet == null) {
+      populateProjects();
+    }
+    boolean modified = false;
+    File dir = repoRoot.getChild(batch.toString()).toFile();
+    Set<Integer> checkouts = new HashSet<>();
+    File[] children = dir.listFiles();
+    if (children != null) {
+      watcher.register(dir);
+      for (File child : children) {
+        if (NUMBER.matcher(child.getName()).matches()) {
+          checkouts.add(Integer.valueOf(child.getName()));
+        }
+      }
+    }
+    Batch b = batchSet.getBatch(batch);
+    if (b != null) {
+      for (Project project : new ArrayList<>(b.getProjects())) {
+        if (!checkouts.remove(project.getLocation().getCheckoutNumber())) {
+          batchSet.remove(batch, project.getLocation().getCheckoutNumber());
+          modified = true;
+        }
+      }
+    }
+    for (Integer checkout : checkouts) {
+      batchSet.add(batch, checkout);
+      modified = true;
     }
+    return modified;
   }
   
   public Batch createBatch() {
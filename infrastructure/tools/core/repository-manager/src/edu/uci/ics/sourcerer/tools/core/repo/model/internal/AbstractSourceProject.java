@@ -41,13 +41,35 @@ public abstract class AbstractSourceProject<Repo extends AbstractRepository<?, ?
   
   protected AbstractSourceProject(Repo repo, ProjectLocationImpl loc) {
     super(repo, loc);
-    contentFile = getProjectFile(PROJECT_CONTENT);
-    if (!contentFile.exists()) {
+    contentFile = findContentFile();
+  }
+  
+  private RepoFileImpl findContentFile() {
+    RepoFileImpl content = getProjectFile(PROJECT_CONTENT);
+    if (!content.exists()) {
       RepoFileImpl possibleContent = getProjectFile(PROJECT_CONTENT_ZIP);
       if (possibleContent.exists()) {
-        contentFile = possibleContent;
+        content = possibleContent;
       }
     }
+    return content;
+  }
+  
+  private void contentChanged() {
+    contentFile = findContentFile();
+    files.clear();
+    FileUtils.delete(AbstractFileSet.getCacheDir(this));
+  }
+  
+  @Override
+  protected void reconcile() {
+    super.reconcile();
+    // Only changes directly within the content directory update its modification time
+    File cache = new File(AbstractFileSet.getCacheDir(this), AbstractFileSet.FILE_CACHE.getValue());
+    RepoFileImpl content = findContentFile();
+    if (!content.equals(contentFile) || (cache.exists() && cache.lastModified() < content.toFile().lastModified())) {
+      contentChanged();
+    }
   }
   
   @Override
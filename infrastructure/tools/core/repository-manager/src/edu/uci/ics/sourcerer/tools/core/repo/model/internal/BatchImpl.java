@@ -48,6 +48,10 @@ public class BatchImpl<Project extends AbstractRepoProject<? extends AbstractRep
     return project;
   }
   
+  protected boolean remove(Integer checkout) {
+    return projects.remove(checkout) != null;
+  }
+  
   @Override
   public Project getProject(Integer checkout) {
     return projects.get(checkout);
@@ -51,6 +51,13 @@ final class BatchSetImpl<Project extends AbstractRepoProject<? extends AbstractR
     return b.add(checkout);
   }
   
+  protected void remove(Integer batch, Integer checkout) {
+    Batch b = batches.get(batch);
+    if (b != null && b.remove(checkout)) {
+      size--;
+    }
+  }
+  
   protected Batch createBatch() {
     Integer batch = null;
     if (batches.isEmpty()) {
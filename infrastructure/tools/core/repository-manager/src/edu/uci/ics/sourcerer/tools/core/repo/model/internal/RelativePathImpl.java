@@ -27,115 +27,144 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.RelativePath;
 import edu.uci.ics.sourcerer.util.InterningMap;
 
 /**
+ * Relative paths form a trie of interned nodes, each holding only its
+ * parent and its own name, so common prefixes are stored once. The path
+ * strings are built on demand.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
 final class RelativePathImpl implements RelativePath {
-  private final String relativePath;
-  private static final Map<String, RelativePathImpl> interned = new InterningMap<>();
+  private static final Map<RelativePathImpl, RelativePathImpl> interned = new InterningMap<>();
+  private static final RelativePathImpl EMPTY = new RelativePathImpl(null, "");
   
-  private RelativePathImpl(String relativePath) {
-    this.relativePath = relativePath;
+  private final RelativePathImpl parent;
+  private final String name;
+  private final int hash;
+  
+  private RelativePathImpl(RelativePathImpl parent, String name) {
+    this.parent = parent;
+    this.name = name;
+    if (parent == null || parent.parent == null) {
+      hash = name.hashCode();
+    } else {
+      // Matches the hash code of the full path string
+      int power = 1;
+      for (int i = name.length(); i > 0; i--) {
+        power *= 31;
+      }
+      hash = parent.hash * power * 31 + '/' * power + name.hashCode();
+    }
   }
   
-  private static RelativePathImpl intern(String relativePath) {
-    relativePath = relativePath.intern();
-    RelativePathImpl path = interned.get(relativePath);
-    if (path == null) {
-      path = new RelativePathImpl(relativePath);
-      interned.put(relativePath, path);
+  // The interning map isn't thread safe, and the file set walker appends from several threads
+  private static synchronized RelativePathImpl intern(RelativePathImpl parent, String name) {
+    RelativePathImpl path = new RelativePathImpl(parent, name);
+    RelativePathImpl existing = interned.get(path);
+    if (existing == null) {
+      path = new RelativePathImpl(parent, name.intern());
+      interned.put(path, path);
+      return path;
+    } else {
+      return existing;
     }
-    return path;
   }
   
   static RelativePathImpl makeEmpty() {
-    return intern("");
+    return EMPTY;
   }
   
   static RelativePathImpl make(String relativePath) {
     relativePath = relativePath.replace('\\', '/');
-    if (relativePath.charAt(0) == '/') {
-      relativePath = relativePath.substring(1);
-    }
-    if (relativePath.charAt(relativePath.length() - 1) == '/') {
-      relativePath = relativePath.substring(0, relativePath.length() - 1);
-    }
     if (relativePath.indexOf('*') >= 0) {
       logger.log(Level.WARNING, "Problematic relative path for writing: " + relativePath);
     }
-    return intern(relativePath);
+    return EMPTY.append(relativePath);
   }
   
   static RelativePathImpl makeFromWriteable(String relativePath) {
-    relativePath = relativePath.replace('*', ' ');
-    return intern(relativePath);
+    return EMPTY.append(relativePath.replace('*', ' '));
   }
   
   boolean isEmpty() {
-    return relativePath.equals("");
+    return parent == null;
   }
   
   RelativePathImpl append(String path) {
     path = path.replace(File.separatorChar, '/');
-    if (path.equals("")) {
-      return this;
-    } else {
-      if (path.charAt(path.length() - 1) == '/') {
-        path = path.substring(0, path.length() - 1);
+    RelativePathImpl result = this;
+    int start = 0;
+    while (start < path.length()) {
+      int end = path.indexOf('/', start);
+      if (end == -1) {
+        end = path.length();
       }
-      if (path.charAt(0) == '/') {
-        if (relativePath.equals("")) {
-          return intern(path.substring(1));
-        } else {
-          return intern(relativePath + path);
-        }
-      } else {
-        if (relativePath.equals("")) {
-          return intern(path);
-        } else {
-          return intern(relativePath + "/" + path);
-        }
+      if (end > start) {
+        result = intern(result, path.substring(start, end));
       }
+      start = end + 1;
     }
+    return result;
   }
   
   RelativePathImpl append(RelativePathImpl path) {
-    if (relativePath.equals("")) {
-      return path;
-    } else if (path.relativePath.equals("")) {
+    if (path.isEmpty()) {
       return this;
+    } else if (isEmpty()) {
+      return path;
     } else {
-      return intern(relativePath + "/" + path.relativePath);
+      return intern(append(path.parent), path.name);
     }
   }
   
   String toWriteableString() {
-    return relativePath.replace(' ', '*');
+    return toString().replace(' ', '*');
   }
   
   RelativePathImpl getParent() {
     if (isEmpty()) {
       throw new IllegalStateException("Cannot get a parent for an empty relative path.");
     } else {
-      int idx = relativePath.lastIndexOf('/');
-      if (idx == -1) {
-        return makeEmpty();
-      } else {
-        return intern(relativePath.substring(0, idx));
-      }
+      return parent;
     }
   }
   
   String getName() {
-    return relativePath.substring(relativePath.lastIndexOf('/') + 1);
+    return name;
+  }
+  
+  private void append(StringBuilder builder) {
+    if (parent.parent != null) {
+      parent.append(builder);
+      builder.append('/');
+    }
+    builder.append(name);
   }
   
   @Override
   public String toString() {
-    return relativePath;
+    if (parent == null || parent.parent == null) {
+      return name;
+    } else {
+      StringBuilder builder = new StringBuilder();
+      append(builder);
+      return builder.toString();
+    }
+  }
+  
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    } else if (o instanceof RelativePathImpl) {
+      RelativePathImpl other = (RelativePathImpl) o;
+      return parent == other.parent && hash == other.hash && name.equals(other.name);
+    } else {
+      return false;
+    }
   }
   
   @Override
   public int hashCode() {
-    return relativePath.hashCode();
+    return hash;
   }
 }
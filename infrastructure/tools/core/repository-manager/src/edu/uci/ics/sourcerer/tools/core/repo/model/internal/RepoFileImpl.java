@@ -32,12 +32,16 @@ import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 
 /**
+ * A handle on a node of the relative path trie. Only roots keep their
+ * file, for every other file it's made on demand.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class RepoFileImpl implements RepoFile, CustomSerializable {
   private final RepoFileImpl root;
   private final RelativePathImpl relativePath;
-  private File file;
+  // Roots fill this in lazily, and the file set walker shares them between threads
+  private volatile File file;
   private final boolean isRoot;
   
   private RepoFileImpl(File file) {
@@ -118,10 +122,14 @@ public class RepoFileImpl implements RepoFile, CustomSerializable {
   }
 
   private File ensureFile() {
-    if (file == null) {
+    if (file != null) {
+      return file;
+    } else if (isRoot) {
       file = new File(root.ensureFile(), relativePath.toString());
+      return file;
+    } else {
+      return new File(root.ensureFile(), relativePath.toString());
     }
-    return file;
   }
   
   @Override
@@ -150,7 +158,8 @@ public class RepoFileImpl implements RepoFile, CustomSerializable {
   }
   
   public boolean delete() {
-    if (ensureFile().exists()) {
+    File file = ensureFile();
+    if (file.exists()) {
       if (file.isDirectory()) {
         return FileUtils.delete(file);
       } else {
@@ -177,7 +186,8 @@ public class RepoFileImpl implements RepoFile, CustomSerializable {
   }
     
   public File getChildFile(String child) {
-    if (ensureFile().isFile()) {
+    File file = ensureFile();
+    if (file.isFile()) {
       throw new IllegalStateException("Cannot get a child of a file: " + file.getPath() + " " + child);
     } else {
       return new File(file, child);
@@ -234,7 +244,8 @@ public class RepoFileImpl implements RepoFile, CustomSerializable {
   }
   
   public Collection<RepoFileImpl> getChildren() {
-    if (ensureFile().isFile()) {
+    File file = ensureFile();
+    if (file.isFile()) {
       throw new IllegalStateException("Cannot get children of a file: " + file.getPath());
     } else if (!file.exists()) {
       return Collections.emptyList();
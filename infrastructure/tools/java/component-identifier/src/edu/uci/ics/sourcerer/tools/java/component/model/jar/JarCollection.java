@@ -70,8 +70,9 @@ public class JarCollection implements Iterable<Jar> {
     JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
     
     task.start("Adding jars", "jars added", 500);
+    Map<String, ? extends JarFile> found = repo.getJarFiles(jarHashes);
     for (String hash : jarHashes) {
-      JarFile jar = repo.getJarFile(hash);
+      JarFile jar = found.get(hash);
       if (jar == null) {
         logger.warning("Unknown jar: " + hash);
       } else {
@@ -23,7 +23,9 @@ import edu.uci.ics.sourcerer.tools.java.component.model.repo.ComponentRepository
 import edu.uci.ics.sourcerer.tools.java.db.exported.ComponentVerifier;
 import edu.uci.ics.sourcerer.tools.java.db.importer.ComponentImporter;
 import edu.uci.ics.sourcerer.tools.java.db.importer.DatabaseInitializer;
+import edu.uci.ics.sourcerer.tools.java.db.importer.ImportMetrics;
 import edu.uci.ics.sourcerer.tools.java.db.importer.ParallelDatabaseImporter;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
@@ -41,7 +43,8 @@ public class Main {
     }.setProperties(
         DatabaseConnectionFactory.DATABASE_URL, 
         DatabaseConnectionFactory.DATABASE_USER, 
-        DatabaseConnectionFactory.DATABASE_PASSWORD);
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        DatabaseInitializer.DEFER_INDEXES);
     
   public static final Command CLEAN_EXTRACTION_DATA =
     new Command("clean-extraction-data", "Clean the extraction data from the db.") {
@@ -51,7 +54,8 @@ public class Main {
     }.setProperties(
         DatabaseConnectionFactory.DATABASE_URL, 
         DatabaseConnectionFactory.DATABASE_USER, 
-        DatabaseConnectionFactory.DATABASE_PASSWORD);
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        DatabaseInitializer.DEFER_INDEXES);
   
   public static final Command CLEAN_CRAWLED_DATA =
       new Command("clean-crawled-data", "Clean the crawled extraction data from the db.") {
@@ -75,7 +79,11 @@ public class Main {
         JavaRepositoryFactory.INPUT_REPO,
         ParallelDatabaseImporter.THREAD_COUNT,
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
-        FileUtils.TEMP_DIR);
+        LibraryTypeModelCache.LIBRARY_MODEL_CACHE_SIZE,
+        ImportMetrics.IMPORT_METRICS,
+        ImportMetrics.IMPORT_SUMMARY,
+        FileUtils.TEMP_DIR,
+        DatabaseInitializer.DEFER_INDEXES);
   
   public static final Command ADD_JARS = 
     new Command("add-jars", "Adds extracted jars to the database.") {
@@ -89,7 +97,11 @@ public class Main {
         JavaRepositoryFactory.INPUT_REPO,
         ParallelDatabaseImporter.THREAD_COUNT,
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
-        FileUtils.TEMP_DIR);
+        LibraryTypeModelCache.LIBRARY_MODEL_CACHE_SIZE,
+        ImportMetrics.IMPORT_METRICS,
+        ImportMetrics.IMPORT_SUMMARY,
+        FileUtils.TEMP_DIR,
+        DatabaseInitializer.DEFER_INDEXES);
   
   public static final Command ADD_FILTER_JARS = 
       new Command("add-filter-jars", "Adds extracted jars to the database.") {
@@ -103,8 +115,12 @@ public class Main {
           JavaRepositoryFactory.INPUT_REPO,
           ParallelDatabaseImporter.THREAD_COUNT,
           ParallelDatabaseImporter.STRUCTURAL_ONLY,
+          LibraryTypeModelCache.LIBRARY_MODEL_CACHE_SIZE,
+          ImportMetrics.IMPORT_METRICS,
+          ImportMetrics.IMPORT_SUMMARY,
           ParallelDatabaseImporter.JAR_FILTER,
-          FileUtils.TEMP_DIR);
+          FileUtils.TEMP_DIR,
+          DatabaseInitializer.DEFER_INDEXES);
   
   public static final Command ADD_PROJECTS = 
     new Command("add-projects", "Adds extracted projects to the database.") {
@@ -118,7 +134,39 @@ public class Main {
         JavaRepositoryFactory.INPUT_REPO,
         ParallelDatabaseImporter.THREAD_COUNT,
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
-        FileUtils.TEMP_DIR);
+        LibraryTypeModelCache.LIBRARY_MODEL_CACHE_SIZE,
+        ImportMetrics.IMPORT_METRICS,
+        ImportMetrics.IMPORT_SUMMARY,
+        ParallelDatabaseImporter.PIPELINE,
+        FileUtils.TEMP_DIR,
+        DatabaseInitializer.DEFER_INDEXES);
+  
+  public static final Command UPDATE_PROJECTS = 
+    new Command("update-projects", "Updates re-extracted projects in place, only touching rows that changed.") {
+      protected void action() {
+        ParallelDatabaseImporter.updateProjects();
+      }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD, 
+        JavaRepositoryFactory.INPUT_REPO,
+        ParallelDatabaseImporter.THREAD_COUNT,
+        LibraryTypeModelCache.LIBRARY_MODEL_CACHE_SIZE,
+        ImportMetrics.IMPORT_METRICS,
+        ImportMetrics.IMPORT_SUMMARY,
+        FileUtils.TEMP_DIR,
+        DatabaseInitializer.DEFER_INDEXES);
+  
+  public static final Command BUILD_INDEXES =
+    new Command("build-indexes", "Adds any missing secondary indexes after a deferred import.") {
+      protected void action() {
+        DatabaseInitializer.buildIndexes();
+      }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD);
   
   public static final Command ADD_COMPONENTS =
     new Command("add-components", "Identifies and adds components to the database.") {
@@ -22,6 +22,7 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.CommentsTable;
@@ -29,17 +30,27 @@ import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FileMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FilesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable.ImportStage;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable.ImportStatus;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProblemsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectMetricsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable.ProjectState;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.types.Location;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.logging.Logging;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.InsertCounts;
 import edu.uci.ics.sourcerer.utils.db.ParallelDatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
 /**
@@ -52,6 +63,12 @@ public abstract class DatabaseImporter extends ParallelDatabaseRunnable {
   protected TaskProgressLogger task;
   
   protected Map<String, Integer> fileMap;
+  protected ProjectDiff diff;
+  private Integer fileMapProject;
+  
+  private long stageRows;
+  private long stageStart;
+  private InsertCounts stageCounts;
   
   protected DatabaseImporter(String taskName) {
     this.taskName = taskName;
@@ -82,7 +99,33 @@ public abstract class DatabaseImporter extends ParallelDatabaseRunnable {
   
   protected abstract void doImport();
   
+  protected final void shareWith(DatabaseImporter stage) {
+    stage.exec = exec;
+    stage.task = task;
+    stage.tempDir = tempDir;
+  }
+  
+  protected final BatchInserter makeInserter(DatabaseTable table) {
+    if (diff != null && diff.tracks(table)) {
+      return diff.makeInserter(table, false);
+    } else {
+      return exec.makeInFileInserter(tempDir, table);
+    }
+  }
+  
+  protected final void setFileMap(Integer projectID, Map<String, Integer> fileMap) {
+    this.fileMap = fileMap;
+    fileMapProject = projectID;
+  }
+  
+  protected final void passFileMap(DatabaseImporter stage) {
+    stage.setFileMap(fileMapProject, fileMap);
+  }
+  
   protected final void loadFileMap(Integer projectID) {
+    if (projectID.equals(fileMapProject)) {
+      return;
+    }
     task.start("Populating file map", "files loaded");
     
     try (SelectQuery query = exec.createSelectQuery(FilesTable.TABLE)) {
@@ -94,10 +137,11 @@ public abstract class DatabaseImporter extends ParallelDatabaseRunnable {
       TypedQueryResult result = query.select();
       fileMap = new HashMap<>();
       while (result.next()) {
-        fileMap.put(result.getResult(FilesTable.PATH), result.getResult(FilesTable.FILE_ID));
+        fileMap.put(result.getResult(FilesTable.PATH), result.getInt(FilesTable.FILE_ID));
         task.progress();
       }
     }
+    fileMapProject = projectID;
     task.finish();
   }
   
@@ -125,9 +169,111 @@ public abstract class DatabaseImporter extends ParallelDatabaseRunnable {
     }
   }
   
+  protected final void beginStage(Integer projectID, ImportStage stage) {
+    clearJournal(projectID, stage);
+    int entityMark = exec.exucuteSingleInt("SELECT MAX(" + EntitiesTable.ENTITY_ID.getName() + ") FROM " + EntitiesTable.TABLE.getName());
+    int relationMark = exec.exucuteSingleInt("SELECT MAX(" + RelationsTable.RELATION_ID.getName() + ") FROM " + RelationsTable.TABLE.getName());
+    exec.insert(ImportJournalTable.createInsert(projectID, stage, entityMark, relationMark));
+    stageRows = exec.getInsertedRows();
+    stageCounts = exec.getInsertCounts().copy();
+    stageStart = System.nanoTime();
+  }
+  
+  protected final void endStage(Integer projectID, ImportStage stage) {
+    long stageNanos = System.nanoTime() - stageStart;
+    ImportMetrics.record(stage, projectID, stageNanos, exec.getInsertCounts().since(stageCounts));
+    try (SetStatement update = exec.createSetStatement(ImportJournalTable.TABLE)) {
+      update.addAssignment(ImportJournalTable.STATUS, ImportStatus.COMPLETED);
+      update.addAssignment(ImportJournalTable.ROW_COUNT, (int) (exec.getInsertedRows() - stageRows));
+      update.addAssignment(ImportJournalTable.MILLIS, (int) TimeUnit.NANOSECONDS.toMillis(stageNanos));
+      update.andWhere(ImportJournalTable.PROJECT_ID.compareEquals(projectID).and(ImportJournalTable.STAGE.compareEquals(stage)));
+      update.execute();
+    }
+  }
+  
+  private void clearJournal(Integer projectID, ImportStage stage) {
+    try (DeleteStatement delete = exec.createDeleteStatement(ImportJournalTable.TABLE)) {
+      delete.andWhere(ImportJournalTable.PROJECT_ID.compareEquals(projectID));
+      if (stage != null) {
+        delete.andWhere(ImportJournalTable.STAGE.compareEquals(stage));
+      }
+      delete.execute();
+    }
+  }
+  
+  // Undoes an interrupted structural or referential stage using the journal marks, so only that stage is redone
+  protected final ProjectState resumeImport(Column<String> stateColumn, Integer projectID, ProjectState state) {
+    ImportStage stage = null;
+    ProjectState resumed = null;
+    if (state == ProjectState.BEGIN_STRUCTURAL) {
+      stage = ImportStage.STRUCTURAL;
+      resumed = ProjectState.END_ENTITY;
+    } else if (state == ProjectState.BEGIN_REFERENTIAL) {
+      stage = ImportStage.REFERENTIAL;
+      resumed = ProjectState.END_STRUCTURAL;
+    } else {
+      return state;
+    }
+    
+    Integer entityMark = null;
+    Integer relationMark = null;
+    try (SelectQuery query = exec.createSelectQuery(ImportJournalTable.TABLE)) {
+      query.addSelect(ImportJournalTable.ENTITY_MARK, ImportJournalTable.RELATION_MARK);
+      query.andWhere(ImportJournalTable.PROJECT_ID.compareEquals(projectID), ImportJournalTable.STAGE.compareEquals(stage));
+      TypedQueryResult result = query.select();
+      if (result.next()) {
+        entityMark = result.getResult(ImportJournalTable.ENTITY_MARK);
+        relationMark = result.getResult(ImportJournalTable.RELATION_MARK);
+      }
+    }
+    if (entityMark == null || relationMark == null) {
+      return state;
+    }
+    
+    task.start("Rolling back incomplete " + stage.name().toLowerCase() + " import");
+    DeleteStatement delete = null;
+    
+    delete = exec.createDeleteStatement(EntitiesTable.TABLE);
+    delete.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID));
+    delete.andWhere(EntitiesTable.ENTITY_ID.compareGreaterThan(entityMark));
+    delete.execute();
+    
+    delete = exec.createDeleteStatement(RelationsTable.TABLE);
+    delete.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID));
+    delete.andWhere(RelationsTable.RELATION_ID.compareGreaterThan(relationMark));
+    delete.execute();
+    
+    if (stage == ImportStage.STRUCTURAL) {
+      delete = exec.createDeleteStatement(EntityMetricsTable.TABLE);
+      delete.andWhere(EntityMetricsTable.PROJECT_ID.compareEquals(projectID));
+      delete.execute();
+      
+      delete = exec.createDeleteStatement(CommentsTable.TABLE);
+      delete.andWhere(CommentsTable.PROJECT_ID.compareEquals(projectID));
+      delete.execute();
+      
+      delete = exec.createDeleteStatement(ImportsTable.TABLE);
+      delete.andWhere(ImportsTable.PROJECT_ID.compareEquals(projectID));
+      delete.execute();
+    }
+    
+    clearJournal(projectID, stage);
+    
+    try (SetStatement update = exec.createSetStatement(ProjectsTable.TABLE)) {
+      update.addAssignment(stateColumn, resumed.name());
+      update.andWhere(ProjectsTable.PROJECT_ID.compareEquals(projectID));
+      update.execute();
+    }
+    task.finish();
+    
+    return resumed;
+  }
+  
   protected final void deleteProjectContents(Integer projectID) {
     DeleteStatement delete = null;
     
+    clearJournal(projectID, null);
+    
     delete = exec.createDeleteStatement(ProjectMetricsTable.TABLE);
     delete.andWhere(ProjectMetricsTable.PROJECT_ID.compareEquals(projectID));
     delete.execute();
@@ -17,6 +17,7 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.importer;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 
@@ -25,6 +26,7 @@ import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FileMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FilesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProblemsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectMetricsTable;
@@ -32,9 +34,13 @@ import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
@@ -43,6 +49,48 @@ import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class DatabaseInitializer {
+  public static final Argument<Boolean> DEFER_INDEXES = new BooleanArgument("defer-indexes", false, "Leave the indexes that are only used after import unbuilt. Pass it to every import command, then run build-indexes.");
+  
+  private static final DatabaseTable[] ALL_TABLES = {
+    CommentsTable.TABLE,
+    EntitiesTable.TABLE,
+    EntityMetricsTable.TABLE,
+    FileMetricsTable.TABLE,
+    FilesTable.TABLE,
+    ImportJournalTable.TABLE,
+    ImportsTable.TABLE,
+    ProblemsTable.TABLE,
+    ProjectMetricsTable.TABLE,
+    ProjectsTable.TABLE,
+    RelationsTable.TABLE
+  };
+  
+  private static final DatabaseTable[] EXTRACTION_TABLES = {
+    CommentsTable.TABLE,
+    EntitiesTable.TABLE,
+    EntityMetricsTable.TABLE,
+    FileMetricsTable.TABLE,
+    FilesTable.TABLE,
+    ImportJournalTable.TABLE,
+    ImportsTable.TABLE,
+    ProblemsTable.TABLE,
+    ProjectMetricsTable.TABLE,
+    RelationsTable.TABLE
+  };
+  
+  // The importers look projects, files and type models up by project, path and hash, so only these wait
+  private static final Collection<Column<?>> DEFERRED_INDEXES = Arrays.<Column<?>>asList(
+    CommentsTable.CONTAINING_EID,
+    CommentsTable.FOLLOWING_EID,
+    EntitiesTable.FQN,
+    EntitiesTable.PARAMS,
+    EntitiesTable.RAW_PARAMS,
+    ImportsTable.EID,
+    ProjectsTable.GROUP,
+    RelationsTable.LHS_EID,
+    RelationsTable.RHS_EID
+  );
+  
   private DatabaseInitializer() {}
   
   public static void initializeDatabase() {
@@ -53,31 +101,15 @@ public class DatabaseInitializer {
         task.start("Initializing database");
         
         task.start("Dropping old tables");
-        exec.dropTables(
-            CommentsTable.TABLE,
-            EntitiesTable.TABLE,
-            EntityMetricsTable.TABLE,
-            FileMetricsTable.TABLE,
-            FilesTable.TABLE,
-            ImportsTable.TABLE,
-            ProblemsTable.TABLE,
-            ProjectMetricsTable.TABLE,
-            ProjectsTable.TABLE,
-            RelationsTable.TABLE);
+        exec.dropTables(ALL_TABLES);
         task.finish();
         
         task.start("Creating new tables");
-        exec.createTables(
-            CommentsTable.TABLE,
-            EntitiesTable.TABLE,
-            EntityMetricsTable.TABLE,
-            FileMetricsTable.TABLE,
-            FilesTable.TABLE,
-            ImportsTable.TABLE,
-            ProblemsTable.TABLE,
-            ProjectMetricsTable.TABLE,
-            ProjectsTable.TABLE,
-            RelationsTable.TABLE);
+        if (DEFER_INDEXES.getValue()) {
+          exec.createTablesDeferringIndexes(DEFERRED_INDEXES, ALL_TABLES);
+        } else {
+          exec.createTables(ALL_TABLES);
+        }
         task.finish();
         
         task.start("Adding the primitive types");
@@ -110,29 +142,15 @@ public class DatabaseInitializer {
         task.start("Cleaning database of extraction results");
         
         task.start("Dropping old tables");
-        exec.dropTables(
-            CommentsTable.TABLE,
-            EntitiesTable.TABLE,
-            EntityMetricsTable.TABLE,
-            FileMetricsTable.TABLE,
-            FilesTable.TABLE,
-            ImportsTable.TABLE,
-            ProblemsTable.TABLE,
-            ProjectMetricsTable.TABLE,
-            RelationsTable.TABLE);
+        exec.dropTables(EXTRACTION_TABLES);
         task.finish();
         
         task.start("Creating new tables");
-        exec.createTables(
-            CommentsTable.TABLE,
-            EntitiesTable.TABLE,
-            EntityMetricsTable.TABLE,
-            FileMetricsTable.TABLE,
-            FilesTable.TABLE,
-            ImportsTable.TABLE,
-            ProblemsTable.TABLE,
-            ProjectMetricsTable.TABLE,
-            RelationsTable.TABLE);
+        if (DEFER_INDEXES.getValue()) {
+          exec.createTablesDeferringIndexes(DEFERRED_INDEXES, EXTRACTION_TABLES);
+        } else {
+          exec.createTables(EXTRACTION_TABLES);
+        }
         task.finish();
         
         task.start("Cleaning projects table");
@@ -169,6 +187,28 @@ public class DatabaseInitializer {
     }.run();
   }
     
+  public static void buildIndexes() {
+    new DatabaseRunnable() {
+      @Override
+      protected void action() {
+        TaskProgressLogger task = TaskProgressLogger.get();
+        task.start("Building secondary indexes", "tables indexed");
+        for (DatabaseTable table : ALL_TABLES) {
+          task.start("Indexing " + table.getName());
+          int added = exec.addIndexes(table);
+          if (added < 0) {
+            task.report("Unable to index " + table.getName());
+          } else {
+            task.report(added + " indexes added");
+          }
+          task.finish();
+          task.progress();
+        }
+        task.finish();
+      }
+    }.run();
+  }
+  
   public static void cleanCrawledData() {
     new DatabaseRunnable() {
       @Override
@@ -194,7 +234,8 @@ public class DatabaseInitializer {
              DeleteStatement delProb = exec.createDeleteStatement(ProblemsTable.TABLE);
              DeleteStatement delFMet = exec.createDeleteStatement(FileMetricsTable.TABLE);
              DeleteStatement delEMet = exec.createDeleteStatement(EntityMetricsTable.TABLE);
-             DeleteStatement delPMet = exec.createDeleteStatement(ProjectMetricsTable.TABLE);) {
+             DeleteStatement delPMet = exec.createDeleteStatement(ProjectMetricsTable.TABLE);
+             DeleteStatement delJour = exec.createDeleteStatement(ImportJournalTable.TABLE);) {
           ConstantCondition<Integer> delEntID = EntitiesTable.PROJECT_ID.compareEquals();
           delEnt.andWhere(delEntID);
           ConstantCondition<Integer> delFileID = FilesTable.PROJECT_ID.compareEquals();
@@ -213,6 +254,8 @@ public class DatabaseInitializer {
           delEMet.andWhere(delEMetID);
           ConstantCondition<Integer> delPMetID = ProjectMetricsTable.PROJECT_ID.compareEquals();
           delPMet.andWhere(delPMetID);
+          ConstantCondition<Integer> delJourID = ImportJournalTable.PROJECT_ID.compareEquals();
+          delJour.andWhere(delJourID);
           for (Integer projectID : projects) {
             delEntID.setValue(projectID);
             delEnt.execute();
@@ -232,6 +275,8 @@ public class DatabaseInitializer {
             delEMet.execute();
             delPMetID.setValue(projectID);
             delPMet.execute();
+            delJourID.setValue(projectID);
+            delJour.execute();
             task.progress();
           }
         }
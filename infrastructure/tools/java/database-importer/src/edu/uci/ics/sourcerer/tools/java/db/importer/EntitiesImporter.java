@@ -19,9 +19,12 @@ package edu.uci.ics.sourcerer.tools.java.db.importer;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -30,6 +33,7 @@ import java.util.logging.Level;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FileMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FilesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable.ImportStage;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProblemsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
@@ -55,18 +59,20 @@ import edu.uci.ics.sourcerer.utils.db.Insert;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public abstract class EntitiesImporter extends DatabaseImporter {
+  private static final int FILE_BATCH_SIZE = 500;
+  
   protected EntitiesImporter(String taskName) {
     super(taskName);
     fileMap = new HashMap<>();
   }
 
   protected final void insert(ReaderBundle reader, Integer projectID) {
+    beginStage(projectID, ImportStage.ENTITY);
     insertFiles(reader, projectID);
-    loadFileMap(projectID);
     insertFileAndProjectMetrics(reader, projectID);
     insertProblems(reader, projectID);
     insertEntities(reader, projectID);
-    fileMap.clear();
+    endStage(projectID, ImportStage.ENTITY);
   }
   
   protected Insert createInsert(ExtractedJarFile jar) {
@@ -103,30 +109,70 @@ public abstract class EntitiesImporter extends DatabaseImporter {
         true);
   }
   
+  // The file ids come back from the insert, so later stages don't need to reload them
   private void insertFiles(ReaderBundle reader, Integer projectID) {
-    task.start("Inserting files");
-    
-    task.start("Processing files", "files processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, FilesTable.TABLE);
+    task.start("Inserting files", "files inserted");
     
+    Map<String, Integer> files = new HashMap<>();
+    List<Insert> inserts = new ArrayList<>(FILE_BATCH_SIZE);
+    List<String> paths = new ArrayList<>(FILE_BATCH_SIZE);
+    boolean complete = true;
     for (FileEX file : reader.getTransientFiles()) {
-      inserter.addInsert(FilesTable.createInsert(file, projectID));
-      task.progress();
+      Insert insert = FilesTable.createInsert(file, projectID);
+      String path = file.getType() == File.JAR ? null : file.getPath();
+      Integer fileID = diff == null ? null : diff.match(insert);
+      if (fileID == null) {
+        inserts.add(insert);
+        paths.add(path);
+        if (inserts.size() == FILE_BATCH_SIZE) {
+          complete &= insertFileBatch(inserts, paths, files);
+        }
+      } else {
+        if (path != null) {
+          files.put(path, fileID);
+        }
+        task.progress();
+      }
+    }
+    if (!inserts.isEmpty()) {
+      complete &= insertFileBatch(inserts, paths, files);
     }
     task.finish();
     
-    task.start("Performing db insert");
-    inserter.insert();
-    task.finish();
-    
-    task.finish();
+    if (complete) {
+      setFileMap(projectID, files);
+    } else {
+      setFileMap(null, files);
+      loadFileMap(projectID);
+    }
+  }
+  
+  private boolean insertFileBatch(List<Insert> inserts, List<String> paths, Map<String, Integer> files) {
+    List<Integer> fileIDs = exec.insertWithKeys(inserts);
+    if (diff != null) {
+      diff.inserted(FilesTable.TABLE, inserts.size());
+    }
+    boolean complete = fileIDs != null;
+    if (complete) {
+      Iterator<String> path = paths.iterator();
+      for (Integer fileID : fileIDs) {
+        String next = path.next();
+        if (next != null) {
+          files.put(next, fileID);
+        }
+        task.progress();
+      }
+    }
+    inserts.clear();
+    paths.clear();
+    return complete;
   }
   
   private void insertFileAndProjectMetrics(ReaderBundle reader, Integer projectID) {
     task.start("Inserting file metrics");
     
     task.start("Processing files", "files processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, FileMetricsTable.TABLE);
+    BatchInserter inserter = makeInserter(FileMetricsTable.TABLE);
     
     Map<Metric, Averager<Double>> projectMetrics = new EnumMap<>(Metric.class);
     
@@ -182,7 +228,7 @@ public abstract class EntitiesImporter extends DatabaseImporter {
     task.start("Inserting problems");
 
     task.start("Processing problems", "problems processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ProblemsTable.TABLE);
+    BatchInserter inserter = makeInserter(ProblemsTable.TABLE);
     
     for (ProblemEX problem : reader.getTransientProblems()) {
       Integer fileID = fileMap.get(problem.getPath());
@@ -206,7 +252,7 @@ public abstract class EntitiesImporter extends DatabaseImporter {
     task.start("Inserting entities");
 
     task.start("Processing entities", "entities processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, EntitiesTable.TABLE);
+    BatchInserter inserter = makeInserter(EntitiesTable.TABLE);
     
     Set<String> usedFqns = new HashSet<>();
     for (EntityEX entity : reader.getTransientEntities()) {
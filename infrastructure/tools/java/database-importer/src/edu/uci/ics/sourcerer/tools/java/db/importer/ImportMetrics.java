@@ -0,0 +1,183 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable.ImportStage;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
+import edu.uci.ics.sourcerer.util.io.arguments.RelativeFileArgument;
+import edu.uci.ics.sourcerer.utils.db.InsertCounts;
+import edu.uci.ics.sourcerer.utils.db.InsertCounts.Count;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ImportMetrics {
+  public static final Argument<File> IMPORT_METRICS = new RelativeFileArgument("import-metrics-file", "import-metrics.csv", Arguments.OUTPUT, "Per project, stage and table insert throughput.");
+  public static final Argument<File> IMPORT_SUMMARY = new RelativeFileArgument("import-summary-file", "import-summary.json", Arguments.OUTPUT, "Insert throughput totals for the run.");
+  
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(60);
+  
+  private static long runStart;
+  private static BufferedWriter writer;
+  private static final Map<ImportStage, StageTotals> stages = new EnumMap<>(ImportStage.class);
+  
+  private ImportMetrics() {}
+  
+  static synchronized void record(ImportStage stage, Integer projectID, long stageNanos, InsertCounts counts) {
+    long now = System.nanoTime();
+    if (runStart == 0) {
+      runStart = now;
+      try {
+        writer = IOUtils.makeBufferedWriter(IMPORT_METRICS.getValue());
+        writer.write("elapsed_seconds,project_id,stage,table,rows,bytes,insert_ms,stage_ms,rows_per_second,rolling_rows_per_second");
+        writer.newLine();
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to write import metrics", e);
+      }
+    }
+    
+    StageTotals totals = stages.get(stage);
+    if (totals == null) {
+      totals = new StageTotals();
+      stages.put(stage, totals);
+    }
+    totals.projects++;
+    totals.nanos += stageNanos;
+    
+    for (Count count : counts.getCounts()) {
+      TableTotals table = totals.tables.get(count.getTable());
+      if (table == null) {
+        table = new TableTotals();
+        totals.tables.put(count.getTable(), table);
+      }
+      table.rows += count.getRows();
+      table.bytes += count.getBytes();
+      table.nanos += count.getNanos();
+      
+      // Rows per wall clock second across all threads over the last minute
+      table.window.add(new long[] { now, count.getRows() });
+      table.windowRows += count.getRows();
+      while (now - table.window.peek()[0] > WINDOW) {
+        table.windowRows -= table.window.poll()[1];
+      }
+      double rolling = table.windowRows / seconds(Math.min(WINDOW, Math.max(now - runStart, 1)));
+      
+      if (writer != null) {
+        try {
+          writer.write(format(seconds(now - runStart)) + "," + projectID + "," + stage + "," + count.getTable() + "," + count.getRows() + "," + count.getBytes() + "," + TimeUnit.NANOSECONDS.toMillis(count.getNanos()) + "," + TimeUnit.NANOSECONDS.toMillis(stageNanos) + "," + format(rate(count.getRows(), count.getNanos())) + "," + format(rolling));
+          writer.newLine();
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Unable to write import metrics", e);
+          IOUtils.close(writer);
+          writer = null;
+        }
+      }
+    }
+  }
+  
+  static synchronized void writeSummary() {
+    if (runStart == 0) {
+      return;
+    }
+    try {
+      if (writer != null) {
+        writer.flush();
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write import metrics", e);
+    }
+    
+    StringBuilder json = new StringBuilder("{\n");
+    json.append("  \"elapsed_seconds\": ").append(format(seconds(System.nanoTime() - runStart))).append(",\n");
+    json.append("  \"stages\": [");
+    boolean firstStage = true;
+    for (Map.Entry<ImportStage, StageTotals> stage : stages.entrySet()) {
+      json.append(firstStage ? "\n" : ",\n");
+      firstStage = false;
+      StageTotals totals = stage.getValue();
+      json.append("    {\n");
+      json.append("      \"stage\": \"").append(stage.getKey()).append("\",\n");
+      json.append("      \"projects\": ").append(totals.projects).append(",\n");
+      json.append("      \"stage_seconds\": ").append(format(seconds(totals.nanos))).append(",\n");
+      json.append("      \"tables\": [");
+      boolean firstTable = true;
+      for (Map.Entry<String, TableTotals> table : totals.tables.entrySet()) {
+        json.append(firstTable ? "\n" : ",\n");
+        firstTable = false;
+        TableTotals t = table.getValue();
+        json.append("        { \"table\": \"").append(table.getKey()).append("\"");
+        json.append(", \"rows\": ").append(t.rows);
+        json.append(", \"bytes\": ").append(t.bytes);
+        json.append(", \"insert_seconds\": ").append(format(seconds(t.nanos)));
+        json.append(", \"rows_per_second\": ").append(format(rate(t.rows, t.nanos)));
+        json.append(", \"bytes_per_second\": ").append(format(rate(t.bytes, t.nanos)));
+        json.append(" }");
+      }
+      json.append("\n      ]\n    }");
+    }
+    json.append("\n  ]\n}\n");
+    
+    try (BufferedWriter summary = IOUtils.makeBufferedWriter(IMPORT_SUMMARY.getValue())) {
+      summary.write(json.toString());
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write import summary", e);
+    }
+  }
+  
+  private static double seconds(long nanos) {
+    return nanos / 1e9;
+  }
+  
+  private static double rate(long amount, long nanos) {
+    return nanos == 0 ? 0 : amount / seconds(nanos);
+  }
+  
+  private static String format(double value) {
+    return String.format(Locale.ENGLISH, "%.1f", value);
+  }
+  
+  private static class StageTotals {
+    private int projects;
+    private long nanos;
+    private final Map<String, TableTotals> tables = new TreeMap<>();
+  }
+  
+  private static class TableTotals {
+    private long rows;
+    private long bytes;
+    private long nanos;
+    private final Deque<long[]> window = new ArrayDeque<>();
+    private long windowRows;
+  }
+}
@@ -64,7 +64,7 @@ class JarEntitiesImporter extends EntitiesImporter {
           equalsHash.setValue(jar.getProperties().HASH.getValue());
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.PATH));
+            ProjectState state = resumeImport(ProjectsTable.PATH, result.getResult(ProjectsTable.PROJECT_ID), ProjectState.parse(result.getResult(ProjectsTable.PATH)));
             if (state == null || state == ProjectState.END_ENTITY || state == ProjectState.END_STRUCTURAL) {
               task.report("Entity import already completed... skipping");
               shouldImport = false;
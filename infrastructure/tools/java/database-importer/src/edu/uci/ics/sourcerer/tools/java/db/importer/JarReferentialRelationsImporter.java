@@ -19,7 +19,7 @@ package edu.uci.ics.sourcerer.tools.java.db.importer;
 
 import java.util.Collections;
 
-import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable.ProjectState;
@@ -38,8 +38,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 class JarReferentialRelationsImporter extends ReferentialRelationsImporter {
   private Nullerator<ExtractedJarFile> jars;
 
-  protected JarReferentialRelationsImporter(Nullerator<ExtractedJarFile> jars, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
-    super("Importing Jar Referential Relations", javaModel, unknowns);
+  protected JarReferentialRelationsImporter(Nullerator<ExtractedJarFile> jars, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns) {
+    super("Importing Jar Referential Relations", libraryModels, unknowns);
     this.jars = jars;
   }
   
@@ -67,7 +67,7 @@ class JarReferentialRelationsImporter extends ReferentialRelationsImporter {
           equalsHash.setValue(jar.getProperties().HASH.getValue());
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.PATH));
+            ProjectState state = resumeImport(ProjectsTable.PATH, result.getResult(ProjectsTable.PROJECT_ID), ProjectState.parse(result.getResult(ProjectsTable.PATH)));
             if (state == null) {
               task.report("Entity import already completed... skipping");
             } else if (state == ProjectState.END_STRUCTURAL) {
@@ -68,7 +68,7 @@ class JarStructuralRelationsImporter extends StructuralRelationsImporter {
           equalsHash.setValue(jar.getProperties().HASH.getValue());
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.PATH));
+            ProjectState state = resumeImport(ProjectsTable.PATH, result.getResult(ProjectsTable.PROJECT_ID), ProjectState.parse(result.getResult(ProjectsTable.PATH)));
             if (state == null || state == ProjectState.END_STRUCTURAL) {
               task.report("Entity import already completed... skipping");
             } else if (state == ProjectState.END_ENTITY) {
@@ -19,7 +19,7 @@ package edu.uci.ics.sourcerer.tools.java.db.importer;
 
 import java.util.Collections;
 
-import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable.ProjectState;
@@ -39,8 +39,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 class JavaLibraryReferentialRelationsImporter extends ReferentialRelationsImporter {
   private Nullerator<ExtractedJarFile> libraries;
   
-  protected JavaLibraryReferentialRelationsImporter(Nullerator<ExtractedJarFile> libraries, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
-    super("Importing Java Library Referential Relations", javaModel, unknowns);
+  protected JavaLibraryReferentialRelationsImporter(Nullerator<ExtractedJarFile> libraries, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns) {
+    super("Importing Java Library Referential Relations", libraryModels, unknowns);
     this.libraries = libraries;
   }
   
@@ -68,7 +68,7 @@ class JavaLibraryReferentialRelationsImporter extends ReferentialRelationsImport
           equalsName.setValue(name);
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.PATH));
+            ProjectState state = resumeImport(ProjectsTable.PATH, result.getResult(ProjectsTable.PROJECT_ID), ProjectState.parse(result.getResult(ProjectsTable.PATH)));
             if (state == null) {
               task.report("Entity import already completed... skipping");
             } else if (state == ProjectState.END_STRUCTURAL) {
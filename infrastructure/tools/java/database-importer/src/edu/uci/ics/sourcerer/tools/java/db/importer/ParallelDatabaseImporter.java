@@ -25,11 +25,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.Extracted;
 import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProject;
 import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaRepository;
@@ -47,6 +51,7 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
  */
 public final class ParallelDatabaseImporter {
   public static Argument<Boolean> STRUCTURAL_ONLY = new BooleanArgument("structural-only", false, "Only import entities and structural relations");
+  public static Argument<Boolean> PIPELINE = new BooleanArgument("pipeline", false, "Move each project through every import stage in a single pass");
   public static Argument<Integer> THREAD_COUNT = new IntegerArgument("thread-count", 4, "Number of simultaneous threads");
   public static Argument<File> JAR_FILTER = new RelativeFileArgument("jar-filter-file", "jar-filter.txt", Arguments.INPUT, "Jar filter file for database import.");
   
@@ -94,20 +99,22 @@ public final class ParallelDatabaseImporter {
     if (STRUCTURAL_ONLY.getValue()) {
       task.report("Skipping referential relation import");
     } else {
+      // The structural pass just added the library type hierarchy, so the model has to be reloaded
+      final LibraryTypeModelCache libraryModels = LibraryTypeModelCache.create(JavaLibraryTypeModel.createJavaLibraryTypeModel());
       importJavaLibraries(repo, new ImporterFactory<ExtractedJarFile>() {
-        JavaLibraryTypeModel javaModel = JavaLibraryTypeModel.createJavaLibraryTypeModel();
-        
         @Override
         public String message() {
           return "referential relation import";
         }
         @Override
         public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JavaLibraryReferentialRelationsImporter(nullerator, javaModel, unknowns);
+          return new JavaLibraryReferentialRelationsImporter(nullerator, libraryModels, unknowns);
         }
       });
+      libraryModels.report(task);
     }
     
+    buildDeferredIndexes();
     task.finish();
   }
   
@@ -125,8 +132,13 @@ public final class ParallelDatabaseImporter {
     Collection<ExtractedJarFile> jars = new LinkedList<>();
     task.start("Loading jar filter list");
     try (BufferedReader br = IOUtils.createBufferedReader(JAR_FILTER.getValue());) {
+      Collection<String> hashes = new ArrayList<>();
       for (String hash = br.readLine(); hash != null; hash = br.readLine()) {
-        ExtractedJarFile jar = repo.getJarFile(hash);
+        hashes.add(hash);
+      }
+      Map<String, ? extends ExtractedJarFile> found = repo.getJarFiles(hashes);
+      for (String hash : hashes) {
+        ExtractedJarFile jar = found.get(hash);
         if (jar == null) {
           task.report("Unable to find extracted jar: " + hash);
         } else {
@@ -170,6 +182,7 @@ public final class ParallelDatabaseImporter {
     if (STRUCTURAL_ONLY.getValue()) {
       task.report("Skipping referential relation import");
     } else {
+      final LibraryTypeModelCache libraryModels = LibraryTypeModelCache.create(javaModel);
       importFilterJars(jars, new ImporterFactory<ExtractedJarFile>() {
         @Override
         public String message() {
@@ -178,11 +191,13 @@ public final class ParallelDatabaseImporter {
         
         @Override
         public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
+          return new JarReferentialRelationsImporter(nullerator, libraryModels, unknowns);
         }
       });
+      libraryModels.report(task);
     }
     
+    buildDeferredIndexes();
     task.finish();
   }
   public static void importJarFiles() {
@@ -251,6 +266,7 @@ public final class ParallelDatabaseImporter {
     if (STRUCTURAL_ONLY.getValue()) {
       task.report("Skipping referential relation import");
     } else {
+      final LibraryTypeModelCache libraryModels = LibraryTypeModelCache.create(javaModel);
       importMavenJars(repo, new ImporterFactory<ExtractedJarFile>() {
         @Override
         public String message() {
@@ -259,9 +275,10 @@ public final class ParallelDatabaseImporter {
         
         @Override
         public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
+          return new JarReferentialRelationsImporter(nullerator, libraryModels, unknowns);
         }
       });
+      libraryModels.report(task);
       
       importProjectJars(repo, new ImporterFactory<ExtractedJarFile>() {
         @Override
@@ -271,11 +288,13 @@ public final class ParallelDatabaseImporter {
         
         @Override
         public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
+          return new JarReferentialRelationsImporter(nullerator, libraryModels, unknowns);
         }
       });
+      libraryModels.report(task);
     }
     
+    buildDeferredIndexes();
     task.finish();
   }
   
@@ -290,6 +309,13 @@ public final class ParallelDatabaseImporter {
       return;
     }
     
+    if (PIPELINE.getValue()) {
+      importProjectsPipelined(repo);
+      buildDeferredIndexes();
+      task.finish();
+      return;
+    }
+    
     importProjects(repo, new ImporterFactory<ExtractedJavaProject>() {
       @Override
       public String message() {
@@ -321,6 +347,7 @@ public final class ParallelDatabaseImporter {
     if (STRUCTURAL_ONLY.getValue()) {
       task.report("Skipping referential relation import");
     } else {
+      final LibraryTypeModelCache libraryModels = LibraryTypeModelCache.create(javaModel);
       importProjects(repo, new ImporterFactory<ExtractedJavaProject>() {
         @Override
         public String message() {
@@ -329,14 +356,90 @@ public final class ParallelDatabaseImporter {
         
         @Override
         public DatabaseImporter create(Nullerator<ExtractedJavaProject> nullerator) {
-          return new ProjectReferentialRelationsImporter(nullerator, javaModel, unknowns);
+          return new ProjectReferentialRelationsImporter(nullerator, libraryModels, unknowns);
         }
       });
+      libraryModels.report(task);
     }
     
+    buildDeferredIndexes();
     task.finish();
   }
   
+  private static void importProjectsPipelined(ExtractedJavaRepository repo) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    final LibraryTypeModelCache libraryModels = LibraryTypeModelCache.create(JavaLibraryTypeModel.createJavaLibraryTypeModel());
+    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
+    final boolean structuralOnly = STRUCTURAL_ONLY.getValue();
+    
+    Collection<? extends ExtractedJavaProject> projects = repo.getProjects();
+    boolean waitForDependencies = true;
+    while (!projects.isEmpty()) {
+      // Once a round completes nothing, the remaining dependencies are not coming, so import as the global passes would
+      final Collection<ExtractedJavaProject> deferred = waitForDependencies ? new ConcurrentLinkedQueue<ExtractedJavaProject>() : null;
+      runThreads(projects, new ImporterFactory<ExtractedJavaProject>() {
+        @Override
+        public String message() {
+          return "pipelined project import";
+        }
+        
+        @Override
+        public DatabaseImporter create(Nullerator<ExtractedJavaProject> nullerator) {
+          return new ProjectPipelineImporter(nullerator, libraryModels, unknowns, structuralOnly, deferred);
+        }
+      });
+      libraryModels.report(task);
+      if (deferred == null || deferred.isEmpty()) {
+        break;
+      } else {
+        task.report(deferred.size() + " projects waiting on library dependencies");
+        waitForDependencies = deferred.size() < projects.size();
+        projects = new ArrayList<>(deferred);
+      }
+    }
+  }
+  
+  public static void updateProjects() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Updating projects");
+    
+    ExtractedJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+
+    if (repo == null) {
+      task.finish();
+      return;
+    }
+    
+    final LibraryTypeModelCache libraryModels = LibraryTypeModelCache.create(JavaLibraryTypeModel.createJavaLibraryTypeModel());
+    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
+    
+    importProjects(repo, new ImporterFactory<ExtractedJavaProject>() {
+      @Override
+      public String message() {
+        return "project update";
+      }
+      
+      @Override
+      public DatabaseImporter create(Nullerator<ExtractedJavaProject> nullerator) {
+        return new ProjectUpdateImporter(nullerator, libraryModels, unknowns);
+      }
+    });
+    libraryModels.report(task);
+    
+    buildDeferredIndexes();
+    task.finish();
+  }
+  
+  private static void buildDeferredIndexes() {
+    if (DatabaseInitializer.DEFER_INDEXES.getValue()) {
+      TaskProgressLogger.get().report("Leaving the deferred indexes for build-indexes");
+    } else {
+      // A no-op unless the tables were created with --defer-indexes
+      DatabaseInitializer.buildIndexes();
+    }
+  }
+  
   public static void addBytecodeMetrics() {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Adding bytecode metrics");
@@ -443,30 +546,31 @@ public final class ParallelDatabaseImporter {
   }
   
   private static void importJavaLibraries(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(repo.getLibraryJarFiles(), "Thread %s now processing: %s"), factory);
+    runThreads(repo.getLibraryJarFiles(), factory);
   }
   
   private static void importFilterJars(Iterable<? extends ExtractedJarFile> jars, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(jars, "Thread %s now processing: %s"), factory);
+    runThreads(jars, factory);
   }
   
   private static void importMavenJars(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(repo.getMavenJarFiles(), "Thread %s now processing: %s"), factory);
+    runThreads(repo.getMavenJarFiles(), factory);
   }
   
   private static void importProjectJars(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(repo.getProjectJarFiles(), "Thread %s now processing: %s"), factory);
+    runThreads(repo.getProjectJarFiles(), factory);
   }
   
   private static void importProjects(ExtractedJavaRepository repo, ImporterFactory<ExtractedJavaProject> factory) {
-    runThreads(Nullerator.createNullerator(repo.getProjects(), "Thread %s now processing: %s"), factory);
+    runThreads(repo.getProjects(), factory);
   }
   
-  private static <T> void runThreads(Nullerator<T> nullerator, ImporterFactory<T> factory) {
+  private static <T extends Extracted> void runThreads(Iterable<? extends T> items, ImporterFactory<T> factory) {
     int numThreads = THREAD_COUNT.getValue();
     TaskProgressLogger task = TaskProgressLogger.get();
     
     task.start("Performing " + factory.message() + " with " + numThreads + " threads");
+    WorkStealingNullerator<T> nullerator = WorkStealingNullerator.create(items, numThreads, "Thread %s now processing: %s");
     Collection<Thread> threads = new ArrayList<>(numThreads);
     for (int i = 0; i < numThreads; i++) {
       DatabaseImporter importer = factory.create(nullerator);
@@ -480,6 +584,8 @@ public final class ParallelDatabaseImporter {
         logger.log(Level.SEVERE, "Thread interrupted", e);
       }
     }
+    nullerator.reportUtilization();
+    ImportMetrics.writeSummary();
     task.finish();
   }
 }
@@ -0,0 +1,246 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.Condition;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class ProjectDiff {
+  private static final int BATCH_SIZE = 500;
+  
+  private final QueryExecutor exec;
+  private final File tempDir;
+  private final Integer projectID;
+  private final Map<DatabaseTable, TableDiff> tables;
+  
+  ProjectDiff(QueryExecutor exec, File tempDir, Integer projectID) {
+    this.exec = exec;
+    this.tempDir = tempDir;
+    this.projectID = projectID;
+    tables = new HashMap<>();
+  }
+  
+  // Snapshots the project's existing rows, which must happen before the stage inserts anything
+  void add(DatabaseTable table, Column<Integer> serial, Column<Integer> project, Condition condition) {
+    TableDiff diff = new TableDiff(table, serial);
+    try (SelectQuery query = exec.createSelectQuery(table)) {
+      Collection<Column<?>> columns = table.getColumns();
+      query.addSelect(columns.toArray(new Column<?>[columns.size()]));
+      if (condition == null) {
+        query.andWhere(project.compareEquals(projectID));
+      } else {
+        query.andWhere(project.compareEquals(projectID), condition);
+      }
+      TypedQueryResult result = query.selectStreamed();
+      while (result.next()) {
+        StringBuilder row = new StringBuilder("(NULL");
+        Integer id = null;
+        for (Column<?> column : columns) {
+          if (column == serial) {
+            id = result.getResult(serial);
+          } else {
+            row.append(',').append(render(column, result));
+          }
+        }
+        row.append(')');
+        String key = row.toString();
+        Deque<Integer> ids = diff.existing.get(key);
+        if (ids == null) {
+          ids = new ArrayDeque<>(1);
+          diff.existing.put(key, ids);
+        }
+        ids.add(id);
+      }
+    }
+    tables.put(table, diff);
+  }
+  
+  private static <T> String render(Column<T> column, TypedQueryResult result) {
+    return column.to(result.getResult(column));
+  }
+  
+  boolean tracks(DatabaseTable table) {
+    return tables.containsKey(table);
+  }
+  
+  Integer match(Insert insert) {
+    TableDiff diff = tables.get(insert.getTable());
+    return diff == null ? null : diff.match(insert);
+  }
+  
+  DiffInserter makeInserter(DatabaseTable table, boolean keys) {
+    return new DiffInserter(tables.get(table), keys);
+  }
+  
+  void inserted(DatabaseTable table, int count) {
+    tables.get(table).inserted += count;
+  }
+  
+  // Anything left unmatched was not reproduced by the new extraction
+  void finish(TaskProgressLogger task) {
+    for (TableDiff diff : tables.values()) {
+      List<Integer> stale = new ArrayList<>(BATCH_SIZE);
+      for (Deque<Integer> ids : diff.existing.values()) {
+        for (Integer id : ids) {
+          stale.add(id);
+          diff.deleted++;
+          if (stale.size() == BATCH_SIZE) {
+            delete(diff, stale);
+          }
+        }
+      }
+      if (!stale.isEmpty()) {
+        delete(diff, stale);
+      }
+      task.report(diff.table.getName() + ": " + diff.kept + " kept, " + diff.inserted + " inserted, " + diff.deleted + " deleted");
+    }
+    tables.clear();
+  }
+  
+  private void delete(TableDiff diff, List<Integer> ids) {
+    try (DeleteStatement delete = exec.createDeleteStatement(diff.table)) {
+      delete.andWhere(diff.serial.compareIn(ids));
+      delete.execute();
+    }
+    ids.clear();
+  }
+  
+  private static class TableDiff {
+    private final DatabaseTable table;
+    private final Column<Integer> serial;
+    private final Map<String, Deque<Integer>> existing;
+    private int kept;
+    private int inserted;
+    private int deleted;
+    
+    private TableDiff(DatabaseTable table, Column<Integer> serial) {
+      this.table = table;
+      this.serial = serial;
+      existing = new HashMap<>();
+    }
+    
+    private Integer match(Insert insert) {
+      Deque<Integer> ids = existing.get(insert.toString());
+      if (ids == null) {
+        return null;
+      } else {
+        Integer id = ids.poll();
+        if (ids.isEmpty()) {
+          existing.remove(insert.toString());
+        }
+        kept++;
+        return id;
+      }
+    }
+  }
+  
+  class DiffInserter implements BatchInserter {
+    private final TableDiff diff;
+    private final BatchInserter inserter;
+    private final List<Integer> keys;
+    private final List<Insert> pending;
+    private final List<Integer> pendingSlots;
+    
+    private DiffInserter(TableDiff diff, boolean keys) {
+      this.diff = diff;
+      if (keys) {
+        inserter = null;
+        this.keys = new ArrayList<>();
+        pending = new ArrayList<>(BATCH_SIZE);
+        pendingSlots = new ArrayList<>(BATCH_SIZE);
+      } else {
+        inserter = exec.makeInFileInserter(tempDir, diff.table);
+        this.keys = null;
+        pending = null;
+        pendingSlots = null;
+      }
+    }
+    
+    @Override
+    public void addInsert(Insert insert) {
+      Integer id = diff.match(insert);
+      if (id == null) {
+        diff.inserted++;
+        if (inserter == null) {
+          pendingSlots.add(keys.size());
+          keys.add(null);
+          pending.add(insert);
+          if (pending.size() == BATCH_SIZE) {
+            flush();
+          }
+        } else {
+          inserter.addInsert(insert);
+        }
+      } else if (keys != null) {
+        keys.add(id);
+      }
+    }
+    
+    private void flush() {
+      List<Integer> ids = exec.insertWithKeys(pending);
+      if (ids == null) {
+        logger.severe("Unable to read back keys for " + pending.size() + " rows in " + diff.table.getName());
+      } else {
+        Iterator<Integer> slot = pendingSlots.iterator();
+        for (Integer id : ids) {
+          keys.set(slot.next(), id);
+        }
+      }
+      pending.clear();
+      pendingSlots.clear();
+    }
+    
+    @Override
+    public void insert() {
+      if (inserter == null) {
+        if (!pending.isEmpty()) {
+          flush();
+        }
+      } else {
+        inserter.insert();
+      }
+    }
+    
+    List<Integer> getKeys() {
+      return keys;
+    }
+  }
+}
@@ -64,12 +64,12 @@ class ProjectEntitiesImporter extends EntitiesImporter {
           equalsPath.setValue(project.getLocation().toString());
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.HASH));
+            projectID = result.getResult(ProjectsTable.PROJECT_ID);
+            ProjectState state = resumeImport(ProjectsTable.HASH, projectID, ProjectState.parse(result.getResult(ProjectsTable.HASH)));
             if (state == null || state == ProjectState.END_ENTITY || state == ProjectState.END_STRUCTURAL) {
               task.report("Entity import already completed... skipping");
               shouldImport = false;
             } else {
-              projectID = result.getResult(ProjectsTable.PROJECT_ID);
               task.start("Deleting incomplete import");
               deleteProjectContents(projectID);
               task.finish();
@@ -0,0 +1,198 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable.ProjectState;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.UsedJarEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProject;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.utils.db.sql.Assignment;
+import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class ProjectPipelineImporter extends DatabaseImporter {
+  private Nullerator<ExtractedJavaProject> projects;
+  private Collection<ExtractedJavaProject> deferred;
+  
+  private ProjectEntitiesImporter entities;
+  private ProjectStructuralRelationsImporter structural;
+  private ProjectReferentialRelationsImporter referential;
+  
+  protected ProjectPipelineImporter(Nullerator<ExtractedJavaProject> projects, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns, boolean structuralOnly, Collection<ExtractedJavaProject> deferred) {
+    super("Importing Projects");
+    this.projects = projects;
+    this.deferred = deferred;
+    entities = new ProjectEntitiesImporter(null);
+    structural = new ProjectStructuralRelationsImporter(null, libraryModels.getJavaModel(), unknowns);
+    if (!structuralOnly) {
+      referential = new ProjectReferentialRelationsImporter(null, libraryModels, unknowns);
+    }
+  }
+  
+  @Override
+  public void doImport() {
+    shareWith(entities);
+    shareWith(structural);
+    structural.initializeQueries();
+    if (referential != null) {
+      shareWith(referential);
+    }
+    
+    try (SelectQuery projectState = exec.createSelectQuery(ProjectsTable.TABLE);
+         SelectQuery findUsedJar = exec.createSelectQuery(ProjectsTable.TABLE)) {
+      projectState.addSelect(ProjectsTable.HASH);
+      projectState.addSelect(ProjectsTable.PROJECT_ID);
+      ConstantCondition<String> equalsPath = ProjectsTable.PATH.compareEquals();
+      projectState.andWhere(equalsPath);
+      
+      findUsedJar.addSelect(ProjectsTable.PROJECT_ID);
+      findUsedJar.addSelect(ProjectsTable.PATH);
+      ConstantCondition<String> equalsHash = ProjectsTable.HASH.compareEquals();
+      findUsedJar.andWhere(equalsHash);
+      
+      SetStatement updateState = exec.createSetStatement(ProjectsTable.TABLE);
+      Assignment<String> stateValue = updateState.addAssignment(ProjectsTable.HASH);
+      ConstantCondition<Integer> equalsID = ProjectsTable.PROJECT_ID.compareEquals();
+      updateState.andWhere(equalsID);
+      
+      ExtractedJavaProject project;
+      while ((project = projects.next()) != null) {
+        String name = project.getProperties().NAME.getValue();
+        task.start("Importing " + name + " (" + project.getLocation().toString() + ")");
+        
+        task.start("Verifying import suitability");
+        Integer projectID = null;
+        ProjectState state = ProjectState.BEGIN_ENTITY;
+        boolean shouldImport = true;
+        if (project.getProperties().EXTRACTED.getValue() != null && project.getProperties().EXTRACTED.getValue()) {
+          equalsPath.setValue(project.getLocation().toString());
+          TypedQueryResult result = projectState.select();
+          if (result.next()) {
+            projectID = result.getResult(ProjectsTable.PROJECT_ID);
+            state = resumeImport(ProjectsTable.HASH, projectID, ProjectState.parse(result.getResult(ProjectsTable.HASH)));
+            if (state == null) {
+              task.report("Import already completed... skipping");
+              shouldImport = false;
+            } else if (state == ProjectState.END_STRUCTURAL && referential == null) {
+              task.report("Structural import already completed... skipping");
+              shouldImport = false;
+            }
+          } else if (name == null) {
+            task.report("Null name... skipping");
+            shouldImport = false;
+          }
+        } else {
+          task.report("Extraction not completed... skipping");
+          shouldImport = false;
+        }
+        task.finish();
+        
+        if (shouldImport) {
+          ReaderBundle reader = ReaderBundle.create(project.getExtractionDir().toFile(), project.getCompressedFile().toFile());
+          
+          // Entities do not depend on anything else, so they can always go in
+          if (state != ProjectState.END_ENTITY && state != ProjectState.END_STRUCTURAL) {
+            if (projectID == null) {
+              task.start("Inserting project");
+              projectID = exec.insertWithKey(EntitiesImporter.createInsert(project));
+              task.finish();
+            } else {
+              task.start("Deleting incomplete import");
+              deleteProjectContents(projectID);
+              task.finish();
+            }
+            
+            entities.insert(reader, projectID);
+            entities.passFileMap(structural);
+            
+            equalsID.setValue(projectID);
+            stateValue.setValue(ProjectState.END_ENTITY.name());
+            updateState.execute();
+            state = ProjectState.END_ENTITY;
+          }
+          
+          task.start("Checking library dependencies");
+          boolean ready = true;
+          Collection<Integer> usedJars = new HashSet<>();
+          for (UsedJarEX used : reader.getTransientUsedJars()) {
+            equalsHash.setValue(used.getHash());
+            TypedQueryResult result = findUsedJar.select();
+            if (result.next()) {
+              usedJars.add(result.getResult(ProjectsTable.PROJECT_ID));
+              ProjectState jarState = ProjectState.parse(result.getResult(ProjectsTable.PATH));
+              if (jarState != null && jarState != ProjectState.END_STRUCTURAL) {
+                ready = false;
+              }
+            } else {
+              if (deferred == null) {
+                logger.severe("Missing project for jar: " + used.getHash());
+              }
+              ready = false;
+            }
+          }
+          task.finish();
+          
+          if (!ready && deferred != null) {
+            task.report("Library dependencies not yet imported... deferring");
+            deferred.add(project);
+          } else {
+            equalsID.setValue(projectID);
+            if (state == ProjectState.END_ENTITY) {
+              stateValue.setValue(ProjectState.BEGIN_STRUCTURAL.name());
+              updateState.execute();
+              
+              structural.insert(reader, projectID, usedJars);
+              if (referential != null) {
+                structural.passFileMap(referential);
+              }
+              
+              stateValue.setValue(ProjectState.END_STRUCTURAL.name());
+              updateState.execute();
+            }
+            
+            if (referential != null) {
+              stateValue.setValue(ProjectState.BEGIN_REFERENTIAL.name());
+              updateState.execute();
+              
+              referential.insert(reader, projectID, usedJars);
+              
+              stateValue.setValue(null);
+              updateState.execute();
+            }
+          }
+        }
+        
+        task.finish();
+      }
+    }
+  }
+}
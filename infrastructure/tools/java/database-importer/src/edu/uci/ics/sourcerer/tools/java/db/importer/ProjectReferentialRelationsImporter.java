@@ -22,7 +22,7 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.util.Collection;
 import java.util.HashSet;
 
-import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable.ProjectState;
@@ -42,8 +42,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 public class ProjectReferentialRelationsImporter extends ReferentialRelationsImporter {
   private Nullerator<ExtractedJavaProject> projects;
   
-  protected ProjectReferentialRelationsImporter(Nullerator<ExtractedJavaProject> projects, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
-    super("Importing Jar Referential Relations", javaModel, unknowns);
+  protected ProjectReferentialRelationsImporter(Nullerator<ExtractedJavaProject> projects, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns) {
+    super("Importing Jar Referential Relations", libraryModels, unknowns);
     this.projects = projects;
   }
   
@@ -76,7 +76,7 @@ public class ProjectReferentialRelationsImporter extends ReferentialRelationsImp
           equalsPath.setValue(project.getLocation().toString());
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.HASH));
+            ProjectState state = resumeImport(ProjectsTable.HASH, result.getResult(ProjectsTable.PROJECT_ID), ProjectState.parse(result.getResult(ProjectsTable.HASH)));
             if (state == null) {
               task.report("Entity import already completed... skipping");
             } else if (state == ProjectState.END_STRUCTURAL) {
@@ -77,7 +77,7 @@ class ProjectStructuralRelationsImporter extends StructuralRelationsImporter {
           equalsPath.setValue(project.getLocation().toString());
           TypedQueryResult result = projectState.select();
           if (result.next()) {
-            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.HASH));
+            ProjectState state = resumeImport(ProjectsTable.HASH, result.getResult(ProjectsTable.PROJECT_ID), ProjectState.parse(result.getResult(ProjectsTable.HASH)));
             if (state == null || state == ProjectState.END_STRUCTURAL) {
               task.report("Entity import already completed... skipping");
             } else if (state == ProjectState.END_ENTITY) {
@@ -0,0 +1,194 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
+import edu.uci.ics.sourcerer.tools.java.db.schema.CommentsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.FileMetricsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.FilesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProblemsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectMetricsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable.ProjectState;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.UsedJarEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProject;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.utils.db.sql.Assignment;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class ProjectUpdateImporter extends DatabaseImporter {
+  private static final EnumSet<Entity> LOCAL_ENTITIES = EnumSet.of(Entity.PARAMETER, Entity.LOCAL_VARIABLE);
+  private static final EnumSet<Relation> REFERENTIAL_RELATIONS = EnumSet.of(Relation.CALLS, Relation.READS, Relation.WRITES);
+  
+  private Nullerator<ExtractedJavaProject> projects;
+  
+  private ProjectEntitiesImporter entities;
+  private ProjectStructuralRelationsImporter structural;
+  private ProjectReferentialRelationsImporter referential;
+  
+  protected ProjectUpdateImporter(Nullerator<ExtractedJavaProject> projects, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns) {
+    super("Updating Projects");
+    this.projects = projects;
+    entities = new ProjectEntitiesImporter(null);
+    structural = new ProjectStructuralRelationsImporter(null, libraryModels.getJavaModel(), unknowns);
+    referential = new ProjectReferentialRelationsImporter(null, libraryModels, unknowns);
+  }
+  
+  @Override
+  public void doImport() {
+    shareWith(entities);
+    shareWith(structural);
+    structural.initializeQueries();
+    shareWith(referential);
+    
+    try (SelectQuery projectState = exec.createSelectQuery(ProjectsTable.TABLE);
+         SelectQuery findUsedJar = exec.createSelectQuery(ProjectsTable.TABLE)) {
+      projectState.addSelect(ProjectsTable.HASH);
+      projectState.addSelect(ProjectsTable.PROJECT_ID);
+      ConstantCondition<String> equalsPath = ProjectsTable.PATH.compareEquals();
+      projectState.andWhere(equalsPath);
+      
+      findUsedJar.addSelect(ProjectsTable.PROJECT_ID);
+      ConstantCondition<String> equalsHash = ProjectsTable.HASH.compareEquals();
+      findUsedJar.andWhere(equalsHash);
+      
+      SetStatement updateState = exec.createSetStatement(ProjectsTable.TABLE);
+      Assignment<String> stateValue = updateState.addAssignment(ProjectsTable.HASH);
+      ConstantCondition<Integer> equalsID = ProjectsTable.PROJECT_ID.compareEquals();
+      updateState.andWhere(equalsID);
+      
+      ExtractedJavaProject project;
+      while ((project = projects.next()) != null) {
+        String name = project.getProperties().NAME.getValue();
+        task.start("Updating " + name + " (" + project.getLocation().toString() + ")");
+        
+        task.start("Verifying update suitability");
+        Integer projectID = null;
+        if (project.getProperties().EXTRACTED.getValue() != null && project.getProperties().EXTRACTED.getValue()) {
+          equalsPath.setValue(project.getLocation().toString());
+          TypedQueryResult result = projectState.select();
+          if (result.next()) {
+            ProjectState state = ProjectState.parse(result.getResult(ProjectsTable.HASH));
+            if (state == null) {
+              projectID = result.getResult(ProjectsTable.PROJECT_ID);
+            } else {
+              task.report("Project import not completed (" + state + ")... skipping");
+            }
+          } else {
+            task.report("Project not yet imported... skipping");
+          }
+        } else {
+          task.report("Extraction not completed... skipping");
+        }
+        task.finish();
+        
+        if (projectID != null) {
+          ReaderBundle reader = ReaderBundle.create(project.getExtractionDir().toFile(), project.getCompressedFile().toFile());
+          
+          Collection<Integer> usedJars = new HashSet<>();
+          for (UsedJarEX used : reader.getTransientUsedJars()) {
+            equalsHash.setValue(used.getHash());
+            Integer jarID = findUsedJar.select().toSingleton(ProjectsTable.PROJECT_ID, true);
+            if (jarID == null) {
+              logger.severe("Missing project for jar: " + used.getHash());
+            } else {
+              usedJars.add(jarID);
+            }
+          }
+          
+          // Should the update be interrupted, the next entity import redoes the project from scratch
+          equalsID.setValue(projectID);
+          stateValue.setValue(ProjectState.BEGIN_ENTITY.name());
+          updateState.execute();
+          
+          task.start("Updating entities");
+          deleteRows(FileMetricsTable.TABLE, FileMetricsTable.PROJECT_ID, projectID);
+          deleteRows(ProjectMetricsTable.TABLE, ProjectMetricsTable.PROJECT_ID, projectID);
+          deleteRows(ProblemsTable.TABLE, ProblemsTable.PROJECT_ID, projectID);
+          ProjectDiff diff = new ProjectDiff(exec, tempDir, projectID);
+          diff.add(FilesTable.TABLE, FilesTable.FILE_ID, FilesTable.PROJECT_ID, null);
+          diff.add(EntitiesTable.TABLE, EntitiesTable.ENTITY_ID, EntitiesTable.PROJECT_ID, EntitiesTable.ENTITY_TYPE.compareNotIn(LOCAL_ENTITIES));
+          entities.diff = diff;
+          entities.insert(reader, projectID);
+          entities.diff = null;
+          diff.finish(task);
+          entities.passFileMap(structural);
+          task.finish();
+          
+          task.start("Updating structural relations");
+          deleteRows(EntityMetricsTable.TABLE, EntityMetricsTable.PROJECT_ID, projectID);
+          deleteRows(ImportsTable.TABLE, ImportsTable.PROJECT_ID, projectID);
+          diff = new ProjectDiff(exec, tempDir, projectID);
+          diff.add(EntitiesTable.TABLE, EntitiesTable.ENTITY_ID, EntitiesTable.PROJECT_ID, EntitiesTable.ENTITY_TYPE.compareIn(LOCAL_ENTITIES));
+          diff.add(RelationsTable.TABLE, RelationsTable.RELATION_ID, RelationsTable.PROJECT_ID, RelationsTable.RELATION_TYPE.compareNotIn(REFERENTIAL_RELATIONS));
+          diff.add(CommentsTable.TABLE, CommentsTable.COMMENT_ID, CommentsTable.PROJECT_ID, null);
+          structural.diff = diff;
+          structural.insert(reader, projectID, usedJars);
+          structural.diff = null;
+          diff.finish(task);
+          structural.passFileMap(referential);
+          task.finish();
+          
+          task.start("Updating referential relations");
+          diff = new ProjectDiff(exec, tempDir, projectID);
+          diff.add(RelationsTable.TABLE, RelationsTable.RELATION_ID, RelationsTable.PROJECT_ID, RelationsTable.RELATION_TYPE.compareIn(REFERENTIAL_RELATIONS));
+          referential.diff = diff;
+          referential.insert(reader, projectID, usedJars);
+          referential.diff = null;
+          diff.finish(task);
+          task.finish();
+          
+          stateValue.setValue(null);
+          updateState.execute();
+        }
+        
+        task.finish();
+      }
+    }
+  }
+  
+  private void deleteRows(DatabaseTable table, Column<Integer> project, Integer projectID) {
+    try (DeleteStatement delete = exec.createDeleteStatement(table)) {
+      delete.andWhere(project.compareEquals(projectID));
+      delete.execute();
+    }
+  }
+}
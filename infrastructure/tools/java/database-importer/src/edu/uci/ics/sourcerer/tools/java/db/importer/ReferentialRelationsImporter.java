@@ -19,10 +19,11 @@ package edu.uci.ics.sourcerer.tools.java.db.importer;
 
 import java.util.Collection;
 
-import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.LibraryTypeModelCache;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ModeledEntity;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ProjectTypeModel;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable.ImportStage;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
@@ -33,24 +34,32 @@ import edu.uci.ics.sourcerer.utils.db.BatchInserter;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public abstract class ReferentialRelationsImporter extends RelationsImporter {
-  protected ReferentialRelationsImporter(String taskName, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
-    super(taskName, javaModel, unknowns);
+  private LibraryTypeModelCache libraryModels;
+  
+  protected ReferentialRelationsImporter(String taskName, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns) {
+    super(taskName, libraryModels.getJavaModel(), unknowns);
+    this.libraryModels = libraryModels;
   }
   
   protected final void insert(ReaderBundle reader, Integer projectID, Collection<Integer> externalProjects) {
+    beginStage(projectID, ImportStage.REFERENTIAL);
     loadFileMap(projectID);
-    projectModel = ProjectTypeModel.createVirtualProjectTypeModel(task, exec, projectID, externalProjects, javaModel, unknowns);
+    projectModel = ProjectTypeModel.createVirtualProjectTypeModel(task, exec, projectID, externalProjects, libraryModels, unknowns);
     
-    insertReferentialRelations(reader, projectID);
+    try {
+      insertReferentialRelations(reader, projectID);
+    } finally {
+      projectModel.close();
+    }
     
-    fileMap.clear();
     projectModel = null;
+    endStage(projectID, ImportStage.REFERENTIAL);
   }
   
   private void insertReferentialRelations(ReaderBundle reader, Integer projectID) {
     task.start("Inserting relations");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
+    BatchInserter inserter = makeInserter(RelationsTable.TABLE);
     
     task.start("Processing referential relations", "relations processed");
     for (RelationEX relation : reader.getTransientRelations()) {
@@ -63,11 +72,7 @@ public abstract class ReferentialRelationsImporter extends RelationsImporter {
         ModeledEntity rhs = projectModel.getVirtualEntity(relation.getRhs());
         
         if (lhs != null && rhs != null) {
-          if (fileID == null) {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID));
-          } else {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID, fileID, relation.getLocation()));
-          }
+          addRelation(inserter, relation.getType(), lhs, rhs, projectID, fileID, relation.getLocation());
           task.progress();
         }
       }
@@ -75,6 +80,7 @@ public abstract class ReferentialRelationsImporter extends RelationsImporter {
     task.finish();
     
     task.start("Performing db insert");
+    insertPending(inserter, projectID);
     inserter.insert();
     task.finish();
     
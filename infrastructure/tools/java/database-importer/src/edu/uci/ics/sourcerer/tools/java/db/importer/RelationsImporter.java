@@ -19,21 +19,32 @@ package edu.uci.ics.sourcerer.tools.java.db.importer;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ModeledEntity;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ProjectTypeModel;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.Insert;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public abstract class RelationsImporter extends DatabaseImporter {
+  private static final int MAX_PENDING = 1 << 14;
+  
   protected JavaLibraryTypeModel javaModel;
   protected ProjectTypeModel projectModel;
   protected UnknownEntityCache unknowns;
+  private final Collection<PendingInsert> pending = new ArrayList<>();
   
   protected RelationsImporter(String taskName, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
     super(taskName);
@@ -65,4 +76,55 @@ public abstract class RelationsImporter extends DatabaseImporter {
       return entity.getEntityID(exec, projectID);
     }
   }
+  
+  protected final void addRelation(BatchInserter inserter, final Relation type, final Integer lhs, ModeledEntity rhs, final Integer projectID, final Integer fileID, final Location location) {
+    addInsert(inserter, projectID, new PendingInsert(rhs) {
+      @Override
+      Insert makeInsert(Integer rhsEid) {
+        if (fileID == null) {
+          return RelationsTable.makeInsert(type, entity.getRelationClass(), lhs, rhsEid, projectID);
+        } else {
+          return RelationsTable.makeInsert(type, entity.getRelationClass(), lhs, rhsEid, projectID, fileID, location);
+        }
+      }
+    });
+  }
+  
+  protected final void addImport(BatchInserter inserter, final boolean isStatic, final boolean onDemand, ModeledEntity imported, final Integer projectID, final Integer fileID, final Location location) {
+    addInsert(inserter, projectID, new PendingInsert(imported) {
+      @Override
+      Insert makeInsert(Integer eid) {
+        return ImportsTable.makeInsert(isStatic, onDemand, eid, projectID, fileID, location);
+      }
+    });
+  }
+  
+  private void addInsert(BatchInserter inserter, Integer projectID, PendingInsert insert) {
+    // Unknowns are inserted in batches, so hold on to the row until its batch is flushed
+    if (insert.entity.isPending()) {
+      pending.add(insert);
+      if (pending.size() >= MAX_PENDING) {
+        insertPending(inserter, projectID);
+      }
+    } else {
+      inserter.addInsert(insert.makeInsert(insert.entity.getEntityID(exec, projectID)));
+    }
+  }
+  
+  protected final void insertPending(BatchInserter inserter, Integer projectID) {
+    for (PendingInsert insert : pending) {
+      inserter.addInsert(insert.makeInsert(insert.entity.getEntityID(exec, projectID)));
+    }
+    pending.clear();
+  }
+  
+  private static abstract class PendingInsert {
+    protected final ModeledEntity entity;
+    
+    PendingInsert(ModeledEntity entity) {
+      this.entity = entity;
+    }
+    
+    abstract Insert makeInsert(Integer entityID);
+  }
 }
@@ -22,6 +22,7 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 
@@ -32,6 +33,7 @@ import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
 import edu.uci.ics.sourcerer.tools.java.db.schema.CommentsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportJournalTable.ImportStage;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.CommentEX;
@@ -58,6 +60,7 @@ import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
  */
 public abstract class StructuralRelationsImporter extends RelationsImporter {
   protected Collection<Integer> libraryProjects;
+  private List<Integer> localVariables;
 
   private Querier<Integer, Iterator<Integer>> getLocalVariables;
   
@@ -91,6 +94,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   }
   
   protected final void insert(ReaderBundle reader, Integer projectID, Collection<Integer> externalProjects) {
+    beginStage(projectID, ImportStage.STRUCTURAL);
     loadFileMap(projectID);
     projectModel = ProjectTypeModel.createProjectTypeModel(task, exec, projectID, externalProjects, javaModel, unknowns);
     
@@ -100,14 +104,17 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     insertImports(reader, projectID);
     insertComments(reader, projectID);
     
-    fileMap.clear();
     projectModel = null;
+    localVariables = null;
+    endStage(projectID, ImportStage.STRUCTURAL);
   }
   
   private void insertRemainingEntities(ReaderBundle reader, Integer projectID) {
     task.start("Inserting local variables, parameters and type entities", "entities inserted");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, EntitiesTable.TABLE);
+    // When diffing, the ids of kept and new local variables come back from the inserter in order
+    ProjectDiff.DiffInserter diffInserter = diff == null ? null : diff.makeInserter(EntitiesTable.TABLE, true);
+    BatchInserter inserter = diffInserter == null ? makeInserter(EntitiesTable.TABLE) : diffInserter;
     
     TaskProgressLogger processTask = task.createChild();
     processTask.start("Processing local variables and parameters file", "variables processed");
@@ -126,6 +133,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
         
     task.start("Performing db insert");
     inserter.insert();
+    localVariables = diffInserter == null ? null : diffInserter.getKeys();
     task.finish();
     
     task.finish();
@@ -135,7 +143,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     task.start("Inserting entity metrics");
     
     task.start("Processing entities", "entities processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, EntityMetricsTable.TABLE);
+    BatchInserter inserter = makeInserter(EntityMetricsTable.TABLE);
     
     for (EntityEX entity : reader.getTransientEntities()) {
       Integer fileID = getFileID(entity.getLocation());
@@ -166,10 +174,10 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertStructuralRelations(ReaderBundle reader, Integer projectID) {
     task.start("Inserting relations");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
+    BatchInserter inserter = makeInserter(RelationsTable.TABLE);
     
     task.start("Processing local variables & parameters", "variables processed");
-    Iterator<Integer> localVars = getLocalVariables.select(projectID);
+    Iterator<Integer> localVars = localVariables == null ? getLocalVariables.select(projectID) : localVariables.iterator();
     for (LocalVariableEX var : reader.getTransientLocalVariables()) {
       if (localVars.hasNext()) {
         Integer entityID = localVars.next();
@@ -182,11 +190,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
         // Add the holds relation
         ModeledEntity type = projectModel.getEntity(var.getTypeFqn());
         if (type != null) {
-          if (fileID == null) {
-            inserter.addInsert(RelationsTable.makeInsert(Relation.HOLDS, type.getRelationClass(), entityID, type.getEntityID(exec, projectID), projectID));
-          } else {
-            inserter.addInsert(RelationsTable.makeInsert(Relation.HOLDS, type.getRelationClass(), entityID, type.getEntityID(exec, projectID), projectID, fileID, var.getLocation()));
-          }
+          addRelation(inserter, Relation.HOLDS, entityID, type, projectID, fileID, var.getLocation());
         }
         
         // Add the contains relation
@@ -212,11 +216,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
         ModeledEntity rhs = projectModel.getEntity(relation.getRhs());
         
         if (lhs != null && rhs != null) {
-          if (fileID == null) {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID));
-          } else {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID, fileID, relation.getLocation()));
-          }
+          addRelation(inserter, relation.getType(), lhs, rhs, projectID, fileID, relation.getLocation());
           task.progress();
         }
       }
@@ -224,6 +224,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     task.finish();
     
     task.start("Performing db insert");
+    insertPending(inserter, projectID);
     inserter.insert();
     task.finish();
     
@@ -233,7 +234,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertImports(ReaderBundle reader, Integer projectID) {
     task.start("Inserting imports");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ImportsTable.TABLE);
+    BatchInserter inserter = makeInserter(ImportsTable.TABLE);
     
     task.start("Processing imports", "imports processed");
     for (ImportEX imp : reader.getTransientImports()) {
@@ -244,7 +245,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
         if (fileID == null) {
           logger.severe("Missing fileID for: " + imp.getLocation());
         } else {
-          inserter.addInsert(ImportsTable.makeInsert(imp.isStatic(), imp.isOnDemand(), imported.getEntityID(exec, projectID), projectID, fileID, imp.getLocation()));
+          addImport(inserter, imp.isStatic(), imp.isOnDemand(), imported, projectID, fileID, imp.getLocation());
         }
         task.progress();
       }
@@ -252,6 +253,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     task.finish();
     
     task.start("Performing db insert");
+    insertPending(inserter, projectID);
     inserter.insert();
     task.finish();
     
@@ -261,7 +263,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertComments(ReaderBundle reader, Integer projectID) {
     task.start("Inserting comments");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, CommentsTable.TABLE);
+    BatchInserter inserter = makeInserter(CommentsTable.TABLE);
     
     task.start("Processing comments", "comments processed");
     for (CommentEX comment : reader.getTransientComments()) {
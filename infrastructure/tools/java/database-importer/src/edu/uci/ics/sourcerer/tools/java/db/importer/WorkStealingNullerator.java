@@ -0,0 +1,216 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.Extracted;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.util.io.logging.Logging;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class WorkStealingNullerator<T extends Extracted> extends Nullerator<T> {
+  private final TaskProgressLogger task;
+  private final String message;
+  private final List<Worker<T>> workers;
+  private final AtomicInteger nextWorker;
+  private final ThreadLocal<Worker<T>> localWorker;
+  private final long startTime;
+  
+  private static final class Item<T> {
+    private final T value;
+    private final long size;
+    
+    private Item(T value, long size) {
+      this.value = value;
+      this.size = size;
+    }
+  }
+  
+  private static final class Worker<T> {
+    private final int id;
+    private final ConcurrentLinkedDeque<Item<T>> deque = new ConcurrentLinkedDeque<>();
+    private final AtomicLong remaining = new AtomicLong();
+    private long assigned;
+    
+    // Only touched by the owning thread
+    private int processed;
+    private int stolen;
+    private long processedSize;
+    private long busy;
+    private long itemStart;
+    
+    private Worker(int id) {
+      this.id = id;
+    }
+  }
+  
+  private WorkStealingNullerator(List<Item<T>> items, int numThreads, String message) {
+    super(null, message);
+    this.task = TaskProgressLogger.get();
+    this.message = message;
+    this.workers = new ArrayList<>(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      workers.add(new Worker<T>(i));
+    }
+    // Deal the items largest first, always to the least loaded worker
+    for (Item<T> item : items) {
+      Worker<T> min = workers.get(0);
+      for (Worker<T> worker : workers) {
+        if (worker.assigned < min.assigned) {
+          min = worker;
+        }
+      }
+      min.deque.addLast(item);
+      min.assigned += item.size;
+      min.remaining.addAndGet(item.size);
+    }
+    this.nextWorker = new AtomicInteger();
+    this.localWorker = new ThreadLocal<Worker<T>>() {
+      @Override
+      protected Worker<T> initialValue() {
+        return workers.get(nextWorker.getAndIncrement() % workers.size());
+      }
+    };
+    this.startTime = System.nanoTime();
+  }
+  
+  static <T extends Extracted> WorkStealingNullerator<T> create(Iterable<? extends T> iterable, int numThreads, String message) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Estimating work from extracted file sizes", "items estimated", 1000);
+    List<Item<T>> items = new ArrayList<>();
+    long total = 0;
+    if (iterable != null) {
+      for (T value : iterable) {
+        long size = estimateSize(value);
+        items.add(new Item<T>(value, size));
+        total += size;
+        task.progress();
+      }
+    }
+    Collections.sort(items, new Comparator<Item<T>>() {
+      @Override
+      public int compare(Item<T> o1, Item<T> o2) {
+        return Long.compare(o2.size, o1.size);
+      }
+    });
+    if (!items.isEmpty()) {
+      task.report("Largest item is " + formatSize(items.get(0).size) + " of " + formatSize(total) + " total");
+    }
+    task.finish();
+    return new WorkStealingNullerator<>(items, Math.max(1, numThreads), message);
+  }
+  
+  private static long estimateSize(Extracted extracted) {
+    if (extracted.isCompressed()) {
+      return extracted.getCompressedFile().toFile().length();
+    } else {
+      long size = 0;
+      File[] files = extracted.getExtractionDir().toFile().listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.isFile()) {
+            size += file.length();
+          }
+        }
+      }
+      return size;
+    }
+  }
+  
+  @Override
+  public T next() {
+    Worker<T> worker = localWorker.get();
+    long now = System.nanoTime();
+    if (worker.itemStart != 0) {
+      worker.busy += now - worker.itemStart;
+      worker.itemStart = 0;
+    }
+    
+    Item<T> item = worker.deque.pollFirst();
+    if (item == null) {
+      item = steal(worker);
+      if (item == null) {
+        return null;
+      }
+      worker.stolen++;
+    } else {
+      worker.remaining.addAndGet(-item.size);
+    }
+    
+    worker.processed++;
+    worker.processedSize += item.size;
+    worker.itemStart = System.nanoTime();
+    if (message != null) {
+      task.report(Logging.THREAD_INFO, String.format(message, Thread.currentThread().getName(), item.value == null ? "null" : item.value.toString()));
+    }
+    return item.value;
+  }
+  
+  private Item<T> steal(Worker<T> thief) {
+    while (true) {
+      Worker<T> victim = null;
+      for (Worker<T> worker : workers) {
+        if (worker != thief && !worker.deque.isEmpty() && (victim == null || worker.remaining.get() > victim.remaining.get())) {
+          victim = worker;
+        }
+      }
+      if (victim == null) {
+        return null;
+      }
+      // Take the victim's largest pending item, as that is the one most likely to finish last
+      Item<T> item = victim.deque.pollFirst();
+      if (item != null) {
+        victim.remaining.addAndGet(-item.size);
+        return item;
+      }
+    }
+  }
+  
+  void reportUtilization() {
+    long elapsed = Math.max(1, System.nanoTime() - startTime);
+    task.start("Thread utilization over " + formatTime(elapsed));
+    for (Worker<T> worker : workers) {
+      task.report(String.format("Thread %d: %d items (%d stolen), %s, busy %s (%.1f%%)", 
+          worker.id, worker.processed, worker.stolen, formatSize(worker.processedSize), formatTime(worker.busy), 100.0 * worker.busy / elapsed));
+    }
+    task.finish();
+  }
+  
+  private static String formatTime(long nanos) {
+    return String.format("%.1fs", nanos / 1_000_000_000.0);
+  }
+  
+  private static String formatSize(long bytes) {
+    if (bytes < 1024 * 1024) {
+      return String.format("%.1fKB", bytes / 1024.0);
+    } else {
+      return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class HashedEntityMap {
+  private static final Object NULL_ENTITY = new Object();
+  
+  // Keys are kept so colliding hashes are told apart exactly
+  private int[] hashes;
+  private String[] keys;
+  private Object[] values;
+  private int size;
+  
+  HashedEntityMap() {
+    this(16);
+  }
+  
+  HashedEntityMap(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    hashes = new int[capacity];
+    keys = new String[capacity];
+    values = new Object[capacity];
+  }
+  
+  private static int hash(String key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+  
+  private int find(String key, int hash) {
+    int mask = values.length - 1;
+    int index = hash & mask;
+    // The stored hash rejects most mismatches without comparing the strings
+    while (values[index] != null && (hashes[index] != hash || !keys[index].equals(key))) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+  
+  boolean containsKey(String key) {
+    return values[find(key, hash(key))] != null;
+  }
+  
+  ModeledEntity get(String key) {
+    Object value = values[find(key, hash(key))];
+    return value == NULL_ENTITY ? null : (ModeledEntity) value;
+  }
+  
+  void put(String key, ModeledEntity entity) {
+    int hash = hash(key);
+    int index = find(key, hash);
+    if (values[index] == null) {
+      if (++size * 2 > values.length) {
+        resize();
+        index = find(key, hash);
+      }
+      hashes[index] = hash;
+      keys[index] = key;
+    }
+    values[index] = entity == null ? NULL_ENTITY : entity;
+  }
+  
+  int size() {
+    return size;
+  }
+  
+  private void resize() {
+    int[] oldHashes = hashes;
+    String[] oldKeys = keys;
+    Object[] oldValues = values;
+    hashes = new int[oldValues.length * 2];
+    keys = new String[oldValues.length * 2];
+    values = new Object[oldValues.length * 2];
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int index = find(oldKeys[i], oldHashes[i]);
+        hashes[index] = oldHashes[i];
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+      }
+    }
+  }
+}
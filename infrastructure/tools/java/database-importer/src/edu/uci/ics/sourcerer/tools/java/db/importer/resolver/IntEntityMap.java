@@ -0,0 +1,72 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class IntEntityMap {
+  private int[] keys;
+  private ModeledEntity[] values;
+  private int size;
+  
+  IntEntityMap() {
+    keys = new int[16];
+    values = new ModeledEntity[16];
+  }
+  
+  private int find(int key) {
+    int mask = values.length - 1;
+    int hash = key * 0x9e3779b9;
+    int index = (hash ^ (hash >>> 16)) & mask;
+    while (values[index] != null && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+  
+  ModeledEntity get(int key) {
+    return values[find(key)];
+  }
+  
+  void put(int key, ModeledEntity entity) {
+    int index = find(key);
+    if (values[index] == null) {
+      if (++size * 2 > values.length) {
+        resize();
+        index = find(key);
+      }
+      keys[index] = key;
+    }
+    values[index] = entity;
+  }
+  
+  private void resize() {
+    int[] oldKeys = keys;
+    ModeledEntity[] oldValues = values;
+    keys = new int[oldValues.length * 2];
+    values = new ModeledEntity[oldValues.length * 2];
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int index = find(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+      }
+    }
+  }
+}
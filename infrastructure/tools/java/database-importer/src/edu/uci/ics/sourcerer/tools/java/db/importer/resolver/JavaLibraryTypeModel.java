@@ -28,6 +28,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
@@ -42,6 +44,7 @@ import edu.uci.ics.sourcerer.util.Pair;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.type.TypeUtils;
 import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.sql.IntPairs;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
@@ -49,12 +52,18 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class JavaLibraryTypeModel {
-  private Map<String, ModeledEntity> entities;
-  private Map<Integer, ModeledEntity> reverseMap;
+  private static final ModeledEntity UNRESOLVED = new ModeledEntity();
+  
+  // Never modified once the model is built, so reads need no locking
+  private final Map<String, ModeledEntity> entities;
+  private final IntEntityMap reverseMap;
+  
+  private final ConcurrentMap<String, ModeledEntity> virtualEntities;
   
   private JavaLibraryTypeModel() {
     entities = new HashMap<>();
-    reverseMap = new HashMap<>();
+    reverseMap = new IntEntityMap();
+    virtualEntities = new ConcurrentHashMap<>();
   }
   
   private void add(String fqn, ModeledEntity entity) {
@@ -82,7 +91,7 @@ public class JavaLibraryTypeModel {
           TypedQueryResult result = query.select();
           while (result.next()) {
             String fqn = result.getResult(EntitiesTable.FQN);
-            Integer entityID = result.getResult(EntitiesTable.ENTITY_ID);
+            int entityID = result.getInt(EntitiesTable.ENTITY_ID);
             model.add(fqn, new ModeledEntity(fqn, Entity.PRIMITIVE, entityID, RelationClass.JAVA_LIBRARY));
             task.progress();
           }
@@ -106,7 +115,7 @@ public class JavaLibraryTypeModel {
 
           TypedQueryResult result = query.select();
           while (result.next()) {
-            Integer entityID = result.getResult(EntitiesTable.ENTITY_ID);
+            int entityID = result.getInt(EntitiesTable.ENTITY_ID);
             String fqn = result.getResult(EntitiesTable.FQN);
             Entity type = result.getResult(EntitiesTable.ENTITY_TYPE);
             String params = result.getResult(EntitiesTable.PARAMS);
@@ -134,9 +143,9 @@ public class JavaLibraryTypeModel {
           Map<Integer, Integer> pMapping = new HashMap<>();
           
           task.start("Loading has_base_type relations", "relations loaded");
-          TypedQueryResult result = query.select();
-          while (result.next()) {
-            pMapping.put(result.getResult(RelationsTable.LHS_EID), result.getResult(RelationsTable.RHS_EID));
+          IntPairs pairs = query.selectIntPairs(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+          for (int i = 0, max = pairs.size(); i < max; i++) {
+            pMapping.put(pairs.getFirst(i), pairs.getSecond(i));
             task.progress();
           }
           task.finish();
@@ -145,10 +154,10 @@ public class JavaLibraryTypeModel {
           query.clearWhere();
           query.andWhere(RelationsTable.PROJECT_ID.compareIn(libraries), RelationsTable.RELATION_TYPE.compareIn(EnumSet.of(Relation.EXTENDS, Relation.IMPLEMENTS)));
           
-          result = query.select();
-          while (result.next()) {
-            Integer lhsEID = result.getResult(RelationsTable.LHS_EID);
-            Integer rhsEID = result.getResult(RelationsTable.RHS_EID);
+          pairs = query.selectIntPairs(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+          for (int i = 0, max = pairs.size(); i < max; i++) {
+            int lhsEID = pairs.getFirst(i);
+            int rhsEID = pairs.getSecond(i);
             Integer altRHS = pMapping.get(rhsEID);
             if (altRHS != null) {
               rhsEID = altRHS;
@@ -175,20 +184,41 @@ public class JavaLibraryTypeModel {
     return model;
   }
   
-  ModeledEntity getEntity(Integer entityID) {
+  ModeledEntity getEntity(int entityID) {
     return reverseMap.get(entityID);
   }
   
-  synchronized ModeledEntity getEntity(String fqn) {
-    return entities.get(fqn);
+  ModeledEntity getEntity(String fqn) {
+    ModeledEntity entity = entities.get(fqn);
+    if (entity == null) {
+      entity = virtualEntities.get(fqn);
+      return entity == UNRESOLVED ? null : entity;
+    } else {
+      return entity;
+    }
   }
   
-  synchronized ModeledEntity getVirtualEntity(String fqn) {
+  ModeledEntity getVirtualEntity(String fqn) {
     // Try the map
-    if (entities.containsKey(fqn)) {
-      return entities.get(fqn);
+    ModeledEntity entity = entities.get(fqn);
+    if (entity != null) {
+      return entity;
     }
     
+    // Try the cache
+    entity = virtualEntities.get(fqn);
+    if (entity == null) {
+      entity = resolveVirtualEntity(fqn);
+      // If another thread got there first, use its result so virtual duplicates are shared
+      ModeledEntity existing = virtualEntities.putIfAbsent(fqn, entity == null ? UNRESOLVED : entity);
+      if (existing != null) {
+        entity = existing;
+      }
+    }
+    return entity == UNRESOLVED ? null : entity;
+  }
+  
+  private ModeledEntity resolveVirtualEntity(String fqn) {
     // Is it a method or a field?
     if (TypeUtils.isMethod(fqn)) {
       Pair<String, String> parts = TypeUtils.breakMethod(fqn);
@@ -199,7 +229,7 @@ public class JavaLibraryTypeModel {
       }
       
       // Can we find the receiver type?
-      ModeledEntity receiver = entities.get(parts.getFirst());
+      ModeledEntity receiver = getEntity(parts.getFirst());
       
       // No receiver, no virtual resolution
       if (receiver == null) {
@@ -217,7 +247,7 @@ public class JavaLibraryTypeModel {
             if (!seen.contains(parent)) {
               seen.add(parent);
               // See if the parent has the method
-              ModeledEntity method = entities.get(parent.getFQN() + "." + parts.getSecond());
+              ModeledEntity method = getEntity(parent.getFQN() + "." + parts.getSecond());
               if (method == null) {
                 stack.add(parent);
               } else if (parent.getType() == Entity.INTERFACE) {
@@ -238,21 +268,16 @@ public class JavaLibraryTypeModel {
         }
         
         if (classMethod == null && interfaceMethods.isEmpty()) {
-          entities.put(fqn, null);
           return null;
         } else if (classMethod != null) {
-          entities.put(fqn, classMethod);
           return classMethod;
         } else if (interfaceMethods.size() == 1) {
-          ModeledEntity entity = interfaceMethods.iterator().next();
-          entities.put(fqn, entity);
-          return entity;
+          return interfaceMethods.iterator().next();
         } else {
           ModeledEntity entity = new ModeledEntity();
           for (ModeledEntity method : interfaceMethods) {
             entity.addVirtualDuplicate(method);
           }
-          entities.put(fqn, entity);
           return entity;
         }
       }
@@ -267,7 +292,7 @@ public class JavaLibraryTypeModel {
       String fieldName = fqn.substring(dot + 1);
       
       // Can we find the receiver type?
-      ModeledEntity receiver = entities.get(receiverFQN);
+      ModeledEntity receiver = getEntity(receiverFQN);
       
       // No receiver, no virtual resolution
       if (receiver == null) {
@@ -284,7 +309,7 @@ public class JavaLibraryTypeModel {
             if (!seen.contains(parent)) {
               seen.add(parent);
               // See if the parent has the field
-              ModeledEntity field = entities.get(parent.getFQN() + "." + fieldName);
+              ModeledEntity field = getEntity(parent.getFQN() + "." + fieldName);
               if (field == null) {
                 stack.add(parent);
               } else {
@@ -295,15 +320,11 @@ public class JavaLibraryTypeModel {
         }
         
         if (fields.isEmpty()) {
-          entities.put(fqn, null);
           return null;
         } else if (fields.size() == 1) {
-          ModeledEntity entity = fields.iterator().next();
-          entities.put(fqn, entity);
-          return entity;
+          return fields.iterator().next();
         } else {
           logger.severe("Virtual field resolution should never be ambiguous: " + fqn + " " + fields.toString());
-          entities.put(fqn, null);
           return null;
         }
       }
@@ -27,6 +27,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
@@ -39,6 +41,7 @@ import edu.uci.ics.sourcerer.util.Pair;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.type.TypeUtils;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.IntPairs;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
@@ -46,8 +49,13 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 class LibraryTypeModel {
-  private Map<String, ModeledEntity> entities;
-  private Map<Integer, ModeledEntity> reverseMap;
+  private static final ModeledEntity UNRESOLVED = new ModeledEntity();
+  
+  // Shared through the LibraryTypeModelCache, so never modified once loaded
+  private HashedEntityMap entities;
+  private IntEntityMap reverseMap;
+  
+  private ConcurrentMap<String, ModeledEntity> virtualEntities;
   
   private JavaLibraryTypeModel javaModel;
   
@@ -56,7 +64,8 @@ class LibraryTypeModel {
   private LibraryTypeModel(QueryExecutor exec, JavaLibraryTypeModel javaModel) {
     this.exec = exec;
     this.javaModel = javaModel;
-    entities = new HashMap<>();
+    entities = new HashedEntityMap();
+    virtualEntities = new ConcurrentHashMap<>();
   }
   
   private void add(String fqn, ModeledEntity entity) {
@@ -80,7 +89,7 @@ class LibraryTypeModel {
 
       TypedQueryResult result = query.select();
       while (result.next()) {
-        Integer entityID = result.getResult(EntitiesTable.ENTITY_ID);
+        int entityID = result.getInt(EntitiesTable.ENTITY_ID);
         String fqn = result.getResult(EntitiesTable.FQN);
         Entity type = result.getResult(EntitiesTable.ENTITY_TYPE);
         String params = result.getResult(EntitiesTable.PARAMS);
@@ -114,9 +123,9 @@ class LibraryTypeModel {
       Map<Integer, Integer> pMapping = new HashMap<>();
       
       task.start("Loading has_base_type relations", "relations loaded");
-      TypedQueryResult result = query.select();
-      while (result.next()) {
-        pMapping.put(result.getResult(RelationsTable.LHS_EID), result.getResult(RelationsTable.RHS_EID));
+      IntPairs pairs = query.selectIntPairs(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+      for (int i = 0, max = pairs.size(); i < max; i++) {
+        pMapping.put(pairs.getFirst(i), pairs.getSecond(i));
         task.progress();
       }
       task.finish();
@@ -125,10 +134,10 @@ class LibraryTypeModel {
       query.clearWhere();
       query.andWhere(RelationsTable.PROJECT_ID.compareIn(libraries), RelationsTable.RELATION_TYPE.compareIn(EnumSet.of(Relation.EXTENDS, Relation.IMPLEMENTS)));
       
-      result = query.select();
-      while (result.next()) {
-        Integer lhsEID = result.getResult(RelationsTable.LHS_EID);
-        Integer rhsEID = result.getResult(RelationsTable.RHS_EID);
+      pairs = query.selectIntPairs(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+      for (int i = 0, max = pairs.size(); i < max; i++) {
+        int lhsEID = pairs.getFirst(i);
+        int rhsEID = pairs.getSecond(i);
         Integer altRHS = pMapping.get(rhsEID);
         if (altRHS != null) {
           rhsEID = altRHS;
@@ -172,7 +181,7 @@ class LibraryTypeModel {
     task.start("Building virtual library type model");
     
     LibraryTypeModel model = new LibraryTypeModel(exec, javaModel);
-    model.reverseMap = new HashMap<>();
+    model.reverseMap = new IntEntityMap();
     if (!libraries.isEmpty()) {
       model.loadLibraryEntities(task, libraries);
       model.loadStructure(task, libraries);
@@ -183,7 +192,7 @@ class LibraryTypeModel {
     return model;
   }
         
-  ModeledEntity getEntity(Integer entityID) {
+  ModeledEntity getEntity(int entityID) {
     ModeledEntity entity = reverseMap.get(entityID);
     if (entity == null) {
       return javaModel.getEntity(entityID);
@@ -192,10 +201,6 @@ class LibraryTypeModel {
     }
   }
   
-  void clearReverseMap() {
-    reverseMap = null;
-  }
-  
   ModeledEntity getEntity(String fqn) {
     ModeledEntity entity = entities.get(fqn);
     if (entity == null) {
@@ -218,6 +223,22 @@ class LibraryTypeModel {
       return entity;
     }
     
+    // Try the cache
+    entity = virtualEntities.get(fqn);
+    if (entity == null) {
+      entity = resolveVirtualEntity(fqn);
+      // Keep whichever result was cached first
+      ModeledEntity existing = virtualEntities.putIfAbsent(fqn, entity == null ? UNRESOLVED : entity);
+      if (existing != null) {
+        entity = existing;
+      }
+    }
+    return entity == UNRESOLVED ? null : entity;
+  }
+  
+  private ModeledEntity resolveVirtualEntity(String fqn) {
+    ModeledEntity entity = null;
+    
     // Is it a method or a field?
     if (TypeUtils.isMethod(fqn)) {
       Pair<String, String> parts = TypeUtils.breakMethod(fqn);
@@ -269,18 +290,15 @@ class LibraryTypeModel {
         if (classMethod == null && interfaceMethods.isEmpty()) {
           return null;
         } else if (classMethod != null) {
-          entities.put(fqn, classMethod);
           return classMethod;
         } else if (interfaceMethods.size() == 1) {
           entity = interfaceMethods.iterator().next();
-          entities.put(fqn, entity);
           return entity;
         } else {
           entity = new ModeledEntity();
           for (ModeledEntity method : interfaceMethods) {
             entity.addVirtualDuplicate(method);
           }
-          entities.put(fqn, entity);
           return entity;
         }
       }
@@ -326,11 +344,9 @@ class LibraryTypeModel {
           return null;
         } else if (fields.size() == 1) {
           entity = fields.iterator().next();
-          entities.put(fqn, entity);
           return entity;
         } else { 
           logger.severe("Virtual field resolution should never be ambiguous: " + fqn + " " + fields.toString());
-          entities.put(fqn, null);
           return null;
         }
       }
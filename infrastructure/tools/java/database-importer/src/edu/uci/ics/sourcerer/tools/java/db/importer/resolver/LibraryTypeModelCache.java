@@ -0,0 +1,150 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class LibraryTypeModelCache {
+  public static final Argument<Integer> LIBRARY_MODEL_CACHE_SIZE = new IntegerArgument("library-model-cache-size", 32, "Number of unused virtual library type models to keep for reuse.");
+  
+  private final JavaLibraryTypeModel javaModel;
+  private final int capacity;
+  // Access ordered, so iteration starts with the least recently used
+  private final Map<List<Integer>, Entry> entries;
+  
+  private int hits;
+  private int misses;
+  private long loadTime;
+  
+  private static final class Entry {
+    private int refCount;
+    private LibraryTypeModel model;
+  }
+  
+  private LibraryTypeModelCache(JavaLibraryTypeModel javaModel, int capacity) {
+    this.javaModel = javaModel;
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+  
+  public static LibraryTypeModelCache create(JavaLibraryTypeModel javaModel) {
+    return new LibraryTypeModelCache(javaModel, Math.max(0, LIBRARY_MODEL_CACHE_SIZE.getValue()));
+  }
+  
+  public JavaLibraryTypeModel getJavaModel() {
+    return javaModel;
+  }
+  
+  private static List<Integer> makeKey(Collection<Integer> libraries) {
+    List<Integer> key = new ArrayList<>(libraries);
+    Collections.sort(key);
+    return key;
+  }
+  
+  LibraryTypeModel acquire(TaskProgressLogger task, QueryExecutor exec, Collection<Integer> libraries) {
+    List<Integer> key = makeKey(libraries);
+    Entry entry = null;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(key, entry);
+      }
+      entry.refCount++;
+      evict();
+    }
+    
+    // Threads wanting the same libraries wait here while the first one loads them
+    synchronized (entry) {
+      if (entry.model == null) {
+        long start = System.nanoTime();
+        try {
+          entry.model = LibraryTypeModel.createVirtualLibraryTypeModel(task, exec, key, javaModel);
+        } catch (RuntimeException e) {
+          release(key);
+          throw e;
+        }
+        synchronized (this) {
+          misses++;
+          loadTime += System.nanoTime() - start;
+        }
+      } else {
+        synchronized (this) {
+          hits++;
+        }
+        task.report("Reusing cached library type model");
+      }
+      return entry.model;
+    }
+  }
+  
+  void release(Collection<Integer> libraries) {
+    List<Integer> key = makeKey(libraries);
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        entry.refCount--;
+        evict();
+      }
+    }
+  }
+  
+  private void evict() {
+    // Models still in use by another thread stay, even if that leaves the cache over capacity
+    int unused = 0;
+    for (Entry entry : entries.values()) {
+      if (entry.refCount == 0) {
+        unused++;
+      }
+    }
+    Iterator<Entry> iter = entries.values().iterator();
+    while (unused > capacity && iter.hasNext()) {
+      Entry entry = iter.next();
+      if (entry.refCount == 0) {
+        iter.remove();
+        unused--;
+      }
+    }
+  }
+  
+  public synchronized void report(TaskProgressLogger task) {
+    int total = hits + misses;
+    if (total > 0) {
+      double average = misses == 0 ? 0 : loadTime / (double) misses;
+      task.report(String.format("Library type model cache: %d hits, %d misses (%.1f%% hit ratio), %d cached, ~%.1fs of loading saved",
+          hits, misses, 100.0 * hits / total, entries.size(), hits * average / 1_000_000_000.0));
+    }
+    hits = 0;
+    misses = 0;
+    loadTime = 0;
+  }
+}
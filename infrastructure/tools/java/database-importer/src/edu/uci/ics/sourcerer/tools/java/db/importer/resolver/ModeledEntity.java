@@ -38,11 +38,12 @@ import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 public class ModeledEntity {
   private String fqn;
   private Entity type;
-  private Integer entityID;
+  private volatile Integer entityID;
   private RelationClass rClass;
   private Collection<Integer> duplicates;
   private Collection<ModeledEntity> virtualDuplicates;
   private Collection<ModeledEntity> parents;
+  private UnknownEntityCache unknowns;
   
   ModeledEntity() {
     virtualDuplicates = new ArrayList<>();
@@ -57,6 +58,11 @@ public class ModeledEntity {
     this.rClass = rClass;
   }
   
+  ModeledEntity(String fqn, UnknownEntityCache unknowns) {
+    this(fqn, Entity.UNKNOWN, null, RelationClass.UNKNOWN);
+    this.unknowns = unknowns;
+  }
+  
   String getFQN() {
     return fqn;
   }
@@ -74,6 +80,16 @@ public class ModeledEntity {
   }
   
   public Integer getEntityID(QueryExecutor exec, Integer projectID) {
+    Integer id = entityID;
+    if (id == null) {
+      return insertEntityID(exec, projectID);
+    } else {
+      return id;
+    }
+  }
+  
+  // Virtual duplicates from the Java library model are shared between importer threads
+  private synchronized Integer insertEntityID(QueryExecutor exec, Integer projectID) {
     if (entityID == null) {
       if (duplicates != null) {
         entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.DUPLICATE, fqn, projectID));
@@ -88,6 +104,8 @@ public class ModeledEntity {
         for (ModeledEntity dup : virtualDuplicates) {
           exec.insert(RelationsTable.makeInsert(Relation.MATCHES, dup.rClass, entityID, dup.entityID, projectID));
         }
+      } else if (unknowns != null) {
+        unknowns.insertPending(exec, this);
       } else {
         logger.severe("Null entityID and no duplicates: " + fqn);
       }
@@ -95,6 +113,29 @@ public class ModeledEntity {
     return entityID;
   }
   
+  /**
+   * True for an unknown whose batch hasn't been inserted yet.
+   */
+  public boolean isPending() {
+    return entityID == null && unknowns != null;
+  }
+  
+  void setEntityID(Integer entityID) {
+    this.entityID = entityID;
+  }
+  
+  boolean isProjectSpecific() {
+    return duplicates != null || virtualDuplicates != null;
+  }
+  
+  ModeledEntity copy() {
+    ModeledEntity copy = new ModeledEntity(fqn, type, null, rClass);
+    copy.duplicates = duplicates;
+    copy.virtualDuplicates = virtualDuplicates;
+    copy.parents = parents;
+    return copy;
+  }
+  
   public void addDuplicate(ModeledEntity entity) {
     if (duplicates == null) {
       duplicates = new HashSet<>();
@@ -24,6 +24,7 @@ import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +38,7 @@ import edu.uci.ics.sourcerer.util.Pair;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.type.TypeUtils;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.IntPairs;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
@@ -44,9 +46,12 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class ProjectTypeModel {
-  private Map<String, ModeledEntity> entities;
-  private Map<Integer, ModeledEntity> reverseMap;
+  private HashedEntityMap entities;
+  private IntEntityMap reverseMap;
   private LibraryTypeModel libraryModel;
+  private Map<ModeledEntity, ModeledEntity> localEntities;
+  private LibraryTypeModelCache libraryModels;
+  private Collection<Integer> libraries;
   
   private UnknownEntityCache unknowns;
   
@@ -58,7 +63,8 @@ public class ProjectTypeModel {
     this.projectID = projectID;
     this.libraryModel = libraryModel;
     this.unknowns = unknowns;
-    this.entities = new HashMap<>();
+    this.entities = new HashedEntityMap();
+    this.localEntities = new IdentityHashMap<>();
   }
   
   private void add(String fqn, ModeledEntity entity) {
@@ -81,7 +87,7 @@ public class ProjectTypeModel {
 
       TypedQueryResult result = query.select();
       while (result.next()) {
-        Integer entityID = result.getResult(EntitiesTable.ENTITY_ID);
+        int entityID = result.getInt(EntitiesTable.ENTITY_ID);
         String fqn = result.getResult(EntitiesTable.FQN);
         Entity type = result.getResult(EntitiesTable.ENTITY_TYPE);
         String params = result.getResult(EntitiesTable.PARAMS);
@@ -113,9 +119,9 @@ public class ProjectTypeModel {
       Map<Integer, Integer> pMapping = new HashMap<>();
       
       task.start("Loading has_base_type relations", "relations loaded");
-      TypedQueryResult result = query.select();
-      while (result.next()) {
-        pMapping.put(result.getResult(RelationsTable.LHS_EID), result.getResult(RelationsTable.RHS_EID));
+      IntPairs pairs = query.selectIntPairs(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+      for (int i = 0, max = pairs.size(); i < max; i++) {
+        pMapping.put(pairs.getFirst(i), pairs.getSecond(i));
         task.progress();
       }
       task.finish();
@@ -124,10 +130,10 @@ public class ProjectTypeModel {
       query.clearWhere();
       query.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareIn(EnumSet.of(Relation.EXTENDS, Relation.IMPLEMENTS)));
       
-      result = query.select();
-      while (result.next()) {
-        Integer lhsEID = result.getResult(RelationsTable.LHS_EID);
-        Integer rhsEID = result.getResult(RelationsTable.RHS_EID);
+      pairs = query.selectIntPairs(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+      for (int i = 0, max = pairs.size(); i < max; i++) {
+        int lhsEID = pairs.getFirst(i);
+        int rhsEID = pairs.getSecond(i);
         Integer altRHS = pMapping.get(rhsEID);
         if (altRHS != null) {
           rhsEID = altRHS;
@@ -152,7 +158,6 @@ public class ProjectTypeModel {
       task.finish();
     }
     reverseMap = null;
-    libraryModel.clearReverseMap();
     task.finish();
   }
   
@@ -169,13 +174,15 @@ public class ProjectTypeModel {
     return model;
   }
   
-  public static ProjectTypeModel createVirtualProjectTypeModel(final TaskProgressLogger task, QueryExecutor exec, Integer projectID, Collection<Integer> libraries, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
-    LibraryTypeModel libraryModel = LibraryTypeModel.createVirtualLibraryTypeModel(task, exec, libraries, javaModel);
+  public static ProjectTypeModel createVirtualProjectTypeModel(final TaskProgressLogger task, QueryExecutor exec, Integer projectID, Collection<Integer> libraries, LibraryTypeModelCache libraryModels, UnknownEntityCache unknowns) {
+    LibraryTypeModel libraryModel = libraryModels.acquire(task, exec, libraries);
     
     task.start("Building virtual project type model");
     
     ProjectTypeModel model = new ProjectTypeModel(exec, projectID, libraryModel, unknowns);
-    model.reverseMap = new HashMap<>();
+    model.libraryModels = libraryModels;
+    model.libraries = libraries;
+    model.reverseMap = new IntEntityMap();
     model.loadEntities(task);
     model.loadStructure(task);
     
@@ -184,6 +191,27 @@ public class ProjectTypeModel {
     return model;
   }
   
+  public void close() {
+    if (libraryModels != null) {
+      libraryModels.release(libraries);
+      libraryModels = null;
+    }
+  }
+  
+  // Library models may be shared between projects, but duplicates need an entity in each project
+  private ModeledEntity getLibraryEntity(ModeledEntity entity) {
+    if (entity == null || !entity.isProjectSpecific()) {
+      return entity;
+    } else {
+      ModeledEntity local = localEntities.get(entity);
+      if (local == null) {
+        local = entity.copy();
+        localEntities.put(entity, local);
+      }
+      return local;
+    }
+  }
+  
   private ModeledEntity getTypeEntity(String fqn) {
     if (TypeUtils.isArray(fqn)) {
       Pair<String, Integer> arrayInfo = TypeUtils.breakArray(fqn);
@@ -265,7 +293,7 @@ public class ProjectTypeModel {
   private ModeledEntity getBasicEntity(String fqn) {
     ModeledEntity entity = entities.get(fqn);
     if (entity == null) {
-      return libraryModel.getEntity(fqn);
+      return getLibraryEntity(libraryModel.getEntity(fqn));
     } else {
       return entity;
     }
@@ -317,7 +345,7 @@ public class ProjectTypeModel {
       }
     }
     if (entity == null) {
-      entity = libraryModel.getEntity(fqn);
+      entity = getLibraryEntity(libraryModel.getEntity(fqn));
     }
     if (entity == null) {
       entity = unknowns.getUnknown(exec, fqn);
@@ -354,7 +382,7 @@ public class ProjectTypeModel {
     }
     
     // Try the library model
-    entity = libraryModel.getEntity(fqn);
+    entity = getLibraryEntity(libraryModel.getEntity(fqn));
     if (entity != null) {
       return entity;
     }
@@ -385,7 +413,7 @@ public class ProjectTypeModel {
       
       // No receiver, try the java library
       if (receiver == null) {
-        entity = libraryModel.getVirtualEntity(fqn);
+        entity = getLibraryEntity(libraryModel.getVirtualEntity(fqn));
         if (entity == null) {
           entity = unknowns.getUnknown(exec, fqn);
         }
@@ -460,7 +488,7 @@ public class ProjectTypeModel {
       
       // No receiver, no virtual resolution
       if (receiver == null) {
-        entity = libraryModel.getVirtualEntity(receiverFQN);
+        entity = getLibraryEntity(libraryModel.getVirtualEntity(receiverFQN));
         if (entity == null) {
           entity = unknowns.getUnknown(exec, receiverFQN);
         }
@@ -19,8 +19,11 @@ package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
@@ -30,6 +33,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.type.TypeUtils;
 import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
@@ -38,11 +42,19 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class UnknownEntityCache  {
+  private static final int SHARDS = 16;
+  private static final int BATCH_SIZE = 64;
+  
   private Integer unknownsProject;
-  private Map<String, ModeledEntity> unknowns;
+  private final ConcurrentMap<String, ModeledEntity> unknowns;
+  private final Shard[] shards;
   
   private UnknownEntityCache() {
-    unknowns = new HashMap<>();
+    unknowns = new ConcurrentHashMap<>(16, .75f, SHARDS);
+    shards = new Shard[SHARDS];
+    for (int i = 0; i < SHARDS; i++) {
+      shards[i] = new Shard();
+    }
   }
   
   public static UnknownEntityCache makeUnknownEntityCache(final TaskProgressLogger task) {
@@ -82,26 +94,92 @@ public class UnknownEntityCache  {
     return cache;
   }
   
-  synchronized ModeledEntity getUnknown(QueryExecutor exec, String fqn) {
+  ModeledEntity getUnknown(QueryExecutor exec, String fqn) {
     ModeledEntity entity = unknowns.get(fqn);
     if (entity == null) {
-      Integer entityID = null;
+      Shard shard = shards[getShard(fqn)];
+      synchronized (shard) {
+        entity = unknowns.get(fqn);
+        if (entity == null) {
+          entity = new ModeledEntity(fqn, this);
+          shard.pending.add(entity);
+          unknowns.put(fqn, entity);
+          if (shard.pending.size() >= BATCH_SIZE) {
+            flush(exec, shard);
+          }
+        }
+      }
+    }
+    return entity;
+  }
+  
+  void insertPending(QueryExecutor exec, ModeledEntity entity) {
+    Shard shard = shards[getShard(entity.getFQN())];
+    synchronized (shard) {
+      if (shard.pending.contains(entity)) {
+        flush(exec, shard);
+      }
+    }
+  }
+  
+  private void flush(QueryExecutor exec, Shard shard) {
+    List<Insert> inserts = new ArrayList<>(shard.pending.size());
+    for (ModeledEntity entity : shard.pending) {
+      inserts.add(createInsert(entity.getFQN()));
+    }
+    List<Integer> entityIDs = exec.insertWithKeys(inserts);
+    if (entityIDs == null) {
+      // Some of the batch may have gone in anyway, so find those and insert the rest one at a time
+      logger.warning("Batch insert of " + inserts.size() + " unknowns failed, inserting individually");
+      for (ModeledEntity entity : shard.pending) {
+        Integer entityID = findUnknown(exec, entity.getFQN());
+        if (entityID == null) {
+          entityID = exec.insertWithKey(createInsert(entity.getFQN()));
+        }
+        if (entityID == null) {
+          logger.log(Level.SEVERE, "Error inserting unknown: " + entity.getFQN());
+          unknowns.remove(entity.getFQN());
+        } else {
+          entity.setEntityID(entityID);
+        }
+      }
+    } else {
+      Iterator<Integer> entityID = entityIDs.iterator();
+      for (ModeledEntity entity : shard.pending) {
+        entity.setEntityID(entityID.next());
+      }
+    }
+    shard.pending.clear();
+  }
+  
+  private Insert createInsert(String fqn) {
+    if (TypeUtils.isMethod(fqn)) {
+      String name = TypeUtils.getMethodName(fqn);
+      return EntitiesTable.createInsert(Entity.UNKNOWN, name, fqn.substring(name.length()), unknownsProject);
+    } else {
+      return EntitiesTable.createInsert(Entity.UNKNOWN, fqn, unknownsProject);
+    }
+  }
+  
+  private Integer findUnknown(QueryExecutor exec, String fqn) {
+    try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+      query.addSelect(EntitiesTable.ENTITY_ID);
       if (TypeUtils.isMethod(fqn)) {
         String name = TypeUtils.getMethodName(fqn);
-        entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.UNKNOWN, name, fqn.substring(name.length()), unknownsProject));
-      } else {
-        entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.UNKNOWN, fqn, unknownsProject));
-      }
-      if (entityID == null) {
-        logger.log(Level.SEVERE, "Error inserting unknown: " + fqn);
-        return null;
+        query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(unknownsProject), EntitiesTable.FQN.compareEquals(name), EntitiesTable.PARAMS.compareEquals(fqn.substring(name.length())));
       } else {
-        entity = new ModeledEntity(fqn, Entity.UNKNOWN, entityID, RelationClass.UNKNOWN);
-        unknowns.put(fqn, entity);
-        return entity;
+        query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(unknownsProject), EntitiesTable.FQN.compareEquals(fqn), EntitiesTable.PARAMS.compareNull());
       }
-    } else {
-      return entity;
+      return query.select().toSingleton(EntitiesTable.ENTITY_ID, true);
     }
   }
+  
+  private static int getShard(String fqn) {
+    int hash = fqn.hashCode();
+    return (hash ^ (hash >>> 16)) & (SHARDS - 1);
+  }
+  
+  private static class Shard {
+    private final List<ModeledEntity> pending = new ArrayList<>();
+  }
 }
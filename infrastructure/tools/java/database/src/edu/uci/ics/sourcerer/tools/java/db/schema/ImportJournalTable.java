@@ -0,0 +1,78 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.schema;
+
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ImportJournalTable extends DatabaseTable {
+  /*  
+   *                import_journal table
+   *  +---------------+-----------------+-------+--------+
+   *  | Column name   | Type            | Null? | Index? |
+   *  +---------------+-----------------+-------+--------+
+   *  | project_id    | BIGINT UNSIGNED | No    | Yes    | 
+   *  | stage         | ENUM(values)    | No    | No     | 
+   *  | status        | ENUM(values)    | No    | No     |
+   *  | entity_mark   | BIGINT UNSIGNED | No    | No     |
+   *  | relation_mark | BIGINT UNSIGNED | No    | No     |
+   *  | row_count     | INT UNSIGNED    | Yes   | No     |
+   *  | millis        | INT UNSIGNED    | Yes   | No     |
+   *  +---------------+-----------------+-------+--------+
+   */
+  public static final ImportJournalTable TABLE = new ImportJournalTable();
+  
+  public static final Column<Integer> PROJECT_ID = TABLE.addIDColumn("project_id", false).addIndex();
+  public static final Column<ImportStage> STAGE = TABLE.addEnumColumn("stage", ImportStage.values(), false);
+  public static final Column<ImportStatus> STATUS = TABLE.addEnumColumn("status", ImportStatus.values(), false);
+  public static final Column<Integer> ENTITY_MARK = TABLE.addIDColumn("entity_mark", false);
+  public static final Column<Integer> RELATION_MARK = TABLE.addIDColumn("relation_mark", false);
+  public static final Column<Integer> ROW_COUNT = TABLE.addIntColumn("row_count", true, true);
+  public static final Column<Integer> MILLIS = TABLE.addIntColumn("millis", true, true);
+  
+  private ImportJournalTable() {
+    super("import_journal");
+  }
+  
+  public static enum ImportStage {
+    ENTITY,
+    STRUCTURAL,
+    REFERENTIAL;
+  }
+  
+  public static enum ImportStatus {
+    STARTED,
+    COMPLETED;
+  }
+  
+  // ---- INSERT ----
+  public static Insert createInsert(Integer projectID, ImportStage stage, Integer entityMark, Integer relationMark) {
+    return TABLE.createInsert(
+        PROJECT_ID.to(projectID),
+        STAGE.to(stage),
+        STATUS.to(ImportStatus.STARTED),
+        ENTITY_MARK.to(entityMark),
+        RELATION_MARK.to(relationMark),
+        ROW_COUNT.to(null),
+        MILLIS.to(null));
+  }
+}
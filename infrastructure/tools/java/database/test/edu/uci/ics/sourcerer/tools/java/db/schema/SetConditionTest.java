@@ -0,0 +1,131 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.schema;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifier;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.Condition;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.StringColumn;
+
+/**
+ * Runs against an in-memory H2 database, so the H2 jar must be on the classpath.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class SetConditionTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(
+      DatabaseConnectionFactory.DATABASE_URL,
+      DatabaseConnectionFactory.DATABASE_USER,
+      DatabaseConnectionFactory.DATABASE_PASSWORD);
+  
+  private static final class ModifiersTable extends DatabaseTable {
+    private ModifiersTable() {
+      super("modified_entities");
+    }
+  }
+  
+  private static final ModifiersTable TABLE = new ModifiersTable();
+  private static final StringColumn FQN = TABLE.addVarcharColumn("fqn", 128, false);
+  private static final Column<Modifiers> MODIFIERS = TABLE.addSetColumn("modifiers", Modifier.values(), Modifiers.getFactory(), true);
+  
+  private DatabaseConnection conn;
+  private QueryExecutor exec;
+  
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    // Initializes the logging
+    Command.execute(new String[] { "--test", "--database-url", "jdbc:h2:mem:modifiers;MODE=MySQL", "--database-user", "sa" }, SetConditionTest.class);
+  }
+  
+  @Before
+  public void initialize() {
+    conn = DatabaseConnectionFactory.INSTANCE.create();
+    Assert.assertTrue(conn.open());
+    exec = conn.getExecutor();
+    exec.createTable(TABLE);
+    insert("a.Public", Modifier.PUBLIC);
+    insert("a.Private", Modifier.PRIVATE);
+    insert("a.PrivateStatic", Modifier.PRIVATE, Modifier.STATIC);
+    insert("a.PublicStatic", Modifier.PUBLIC, Modifier.STATIC);
+    insert("a.None");
+  }
+  
+  @After
+  public void cleanUp() {
+    exec.dropTables(TABLE);
+    conn.close();
+  }
+  
+  private void insert(String fqn, Modifier ... modifiers) {
+    exec.executeUpdate("INSERT INTO modified_entities (fqn, modifiers) VALUES ('" + fqn + "', " + Modifiers.make(modifiers).getValue() + ")");
+  }
+  
+  private Set<String> select(Condition condition) {
+    try (SelectQuery query = exec.createSelectQuery(TABLE)) {
+      query.addSelect(FQN);
+      query.andWhere(condition);
+      Collection<String> fqns = query.select().toCollection(FQN);
+      return new HashSet<>(fqns);
+    }
+  }
+  
+  private static Set<String> set(String ... fqns) {
+    Set<String> set = new HashSet<>();
+    for (String fqn : fqns) {
+      set.add(fqn);
+    }
+    return set;
+  }
+  
+  @Test
+  public void testSingleModifierNotEquals() {
+    Assert.assertEquals(set("a.Public", "a.PublicStatic", "a.None"), select(MODIFIERS.compareNotEquals(Modifiers.make(Modifier.PRIVATE))));
+  }
+  
+  @Test
+  public void testSingleModifierEquals() {
+    Assert.assertEquals(set("a.PrivateStatic", "a.PublicStatic"), select(MODIFIERS.compareEquals(Modifiers.make(Modifier.STATIC))));
+  }
+  
+  @Test
+  public void testMultipleModifiersEquals() {
+    Assert.assertEquals(set("a.PrivateStatic"), select(MODIFIERS.compareEquals(Modifiers.make(Modifier.PRIVATE, Modifier.STATIC))));
+  }
+}
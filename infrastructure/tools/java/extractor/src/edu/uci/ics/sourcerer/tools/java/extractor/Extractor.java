@@ -19,6 +19,7 @@ package edu.uci.ics.sourcerer.tools.java.extractor;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -118,9 +119,14 @@ public final class Extractor {
       case FILTER:
       {
         try (BufferedReader br = IOUtils.makeBufferedReader(JAR_FILTER);) {
-          Collection<JarFile> temp = new LinkedList<JarFile>();
+          Collection<String> hashes = new ArrayList<>();
           for (String line = br.readLine(); line != null; line = br.readLine()) {
-            JarFile jar = repo.getJarFile(line);
+            hashes.add(line);
+          }
+          Map<String, ? extends JarFile> found = repo.getJarFiles(hashes);
+          Collection<JarFile> temp = new LinkedList<JarFile>();
+          for (String line : hashes) {
+            JarFile jar = found.get(line);
             if (jar == null) {
               task.report("Unable to find jar: " + line);
             } else {
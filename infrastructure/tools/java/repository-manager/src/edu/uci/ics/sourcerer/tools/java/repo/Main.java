@@ -17,12 +17,15 @@
  */
 package edu.uci.ics.sourcerer.tools.java.repo;
 
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.importers.MavenImporter;
 import edu.uci.ics.sourcerer.tools.java.repo.jars.JarIdentifier;
 import edu.uci.ics.sourcerer.tools.java.repo.misc.JarRepositoryCloner;
 import edu.uci.ics.sourcerer.tools.java.repo.misc.RepositoryCleaner;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.internal.JarStore;
 import edu.uci.ics.sourcerer.tools.java.repo.stats.RepositoryStatisticsCalculator;
+import edu.uci.ics.sourcerer.util.io.FileHasher;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
 
@@ -35,28 +38,42 @@ public class Main {
       protected void action() {
         JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.INPUT_REPO).aggregateJarFiles();
       }
-    }.setProperties(JavaRepositoryFactory.INPUT_REPO);
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, FileHasher.HASH_THREADS, JarStore.USE_JAR_STORE, JarStore.JAR_STORE_DIRECTORY);
+  
+  public static final Command DEDUPE_JAR_FILES =
+    new Command("dedupe-jar-files", "Replaces duplicate jar files in the repository with hard links to a single stored copy.") {
+      protected void action() {
+        JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.INPUT_REPO).dedupeJarFiles();
+      }
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, FileHasher.HASH_THREADS, JarStore.JAR_STORE_DIRECTORY);
+    
+  public static final Command WATCH_REPOSITORY =
+    new Command("watch-repository", "Keeps the repository caches up to date as projects and jars are added.") {
+      protected void action() {
+        JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.INPUT_REPO).watch();
+      }
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, AbstractRepository.RECONCILE_INTERVAL);
     
   public static final Command IMPORT_MAVEN_TO_REPOSITORY =
       new Command("import-maven-to-repo", "Imports Maven2 central repository into the Sourcerer repository.") {
         protected void action() {
           MavenImporter.importMavenToRepository();
         }
-      }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO);
+      }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO, JarStore.USE_JAR_STORE, JarStore.JAR_STORE_DIRECTORY);
       
   public static final Command IMPORT_LATEST_MAVEN_TO_REPOSITORY =
     new Command("import-latest-maven-to-repo", "Imports the latest copy of the Maven2 central repository into the Sourcerer repository.") {
       protected void action() {
         MavenImporter.importLatestMavenToRepository();
       }
-    }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO);
+    }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO, JarStore.USE_JAR_STORE, JarStore.JAR_STORE_DIRECTORY);
   
   public static final Command CALCULATE_REPOSITORY_STATISTICS =
     new Command("calculate-repo-stats", "Calculates a variety of statistics about the repository.") {
       protected void action() {
         RepositoryStatisticsCalculator.calculateRepositoryStatistics();
       }
-    }.setProperties(JavaRepositoryFactory.INPUT_REPO);
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, RepositoryStatisticsCalculator.STATS_THREADS, RepositoryStatisticsCalculator.MAX_PENDING_PROJECTS);
     
   public static final Command TEST_FOR_MEMORY_LEAKS =
     new Command("test-for-memory-leaks", "Tests for memory leaks.") {
@@ -18,6 +18,7 @@
 package edu.uci.ics.sourcerer.tools.java.repo.model;
 
 import java.util.Collection;
+import java.util.Map;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
 import edu.uci.ics.sourcerer.tools.core.repo.model.SourceRepository;
@@ -46,6 +47,8 @@ public interface JavaRepository extends SourceRepository {
   
   public JarFile getJarFile(String hash);
   
+  public Map<String, ? extends JarFile> getJarFiles(Collection<String> hashes);
+  
   public Collection<? extends JarFile> getMavenJarFiles();
   
   public Collection<? extends JarFile> getProjectJarFiles();
@@ -50,4 +50,8 @@ public interface ModifiableJavaRepository extends JavaRepository, ModifiableSour
   public void addLibraryJarFile(File jar, File source);
   
   public void addMavenJarFile(File jar, File source, String group, String artifact, String version);
+  
+  public void dedupeJarFiles();
+  
+  public void watch();
 }
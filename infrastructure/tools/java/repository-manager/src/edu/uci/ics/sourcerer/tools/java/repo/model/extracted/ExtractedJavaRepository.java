@@ -18,6 +18,7 @@
 package edu.uci.ics.sourcerer.tools.java.repo.model.extracted;
 
 import java.util.Collection;
+import java.util.Map;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
 import edu.uci.ics.sourcerer.tools.core.repo.model.Repository;
@@ -43,6 +44,8 @@ public interface ExtractedJavaRepository extends Repository {
   
   public ExtractedJarFile getJarFile(String hash);
   
+  public Map<String, ? extends ExtractedJarFile> getJarFiles(Collection<String> hashes);
+  
   public Collection<? extends ExtractedJarFile> getMavenJarFiles();
   
   public Collection<? extends ExtractedJarFile> getProjectJarFiles();
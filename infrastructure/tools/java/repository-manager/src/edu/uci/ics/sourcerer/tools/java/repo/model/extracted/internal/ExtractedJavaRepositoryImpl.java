@@ -106,20 +106,8 @@ public final class ExtractedJavaRepositoryImpl extends AbstractJavaRepository<Ex
     if (result == null) {
       RepoFileImpl output = cast.getFile().getRoot().reroot(repoRoot);
       result = ExtractedJarFileImpl.create(output, jar.getProperties());
-      switch (result.getProperties().SOURCE.getValue()) {
-        case JAVA_LIBRARY:
-          libraryJarIndex.put(result.getProperties().HASH.getValue(), result);
-          clearLibraryJarCache();
-          break;
-        case MAVEN:
-          mavenJarIndex.put(result.getProperties().HASH.getValue(), result);
-          clearMavenJarCache();
-          break;
-        case PROJECT:
-          projectJarIndex.put(result.getProperties().HASH.getValue(), result);
-          clearProjectJarCache();
-          break;
-      }
+      clearJarCache();
+      getJarIndex().put(result.getProperties().HASH.getValue(), result.getProperties().SOURCE.getValue(), result);
     }
     return result;
   }
@@ -19,9 +19,14 @@ package edu.uci.ics.sourcerer.tools.java.repo.model.internal;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -32,10 +37,10 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepoProject;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepository;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.BatchImpl;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
-import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarSource;
+import edu.uci.ics.sourcerer.util.io.DirectoryWatcher;
+import edu.uci.ics.sourcerer.util.io.MappedIndex;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
-import edu.uci.ics.sourcerer.util.io.SimpleDeserializer;
-import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
@@ -46,27 +51,26 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 public abstract class AbstractJavaRepository<Project extends AbstractRepoProject<? extends AbstractRepository<Project, Batch>, ?>, Batch extends BatchImpl<Project>, Jar extends IJar> extends AbstractRepository<Project, Batch> {
   public static final Argument<String> JARS_DIRECTORY = new StringArgument("jars-dir", "jars", "Repository subdirectory containing jar files.").permit();
   public static final Argument<String> PROJECT_JARS_DIRECTORY = new StringArgument("project-jars-dir", "project", "Directory containing project jars.").permit();
-  public static final Argument<String> PROJECT_JAR_INDEX = new StringArgument("project-jar-index", "project-index.txt", "Project jar index file.").permit();
   public static final Argument<String> MAVEN_JARS_DIRECTORY = new StringArgument("maven-jars-dir", "maven", "Directory containing maven jars.").permit();
-  public static final Argument<String> MAVEN_JAR_INDEX = new StringArgument("maven-jar-index", "maven-index.txt", "Maven jar index file.").permit();
   public static final Argument<String> LIBRARY_JARS_DIRECTORY = new StringArgument("library-jars-dir", "lib", "Directory containing Java library jars.").permit();
-  public static final Argument<String> LIBRARY_JAR_INDEX = new StringArgument("library-jar-index", "library-index.txt", "Library jar index file.").permit();
+  public static final Argument<String> JAR_INDEX = new StringArgument("jar-index", "jar-index.idx", "Index of the maven, project and library jars by hash.").permit();
+  public static final Argument<String> JARS_VERSION = new StringArgument("jars-version-file", "jars-version", "Counter bumped whenever jars are added, used to detect a stale jar index.").permit();
+  public static final Argument<String> HASH_CACHE = new StringArgument("hash-cache-file", "hash-cache.txt", "Cache of jar hashes keyed by path, size and modification time.").permit();
   
-  protected Map<String, Jar> mavenJarIndex;
-  protected Map<String, Jar> projectJarIndex;
-  protected Map<String, Jar> libraryJarIndex;
+  private volatile JarIndex<Jar> jarIndex;
   
-  private RepoFileImpl mavenJarIndexFile;
-  private RepoFileImpl projectJarIndexFile;
-  private RepoFileImpl libraryJarIndexFile;
+  private RepoFileImpl jarIndexFile;
+  private RepoFileImpl jarsVersionFile;
+  
+  private Map<RepoFileImpl, JarSource> changedJars = new HashMap<>();
+  private boolean jarsStale;
   
   protected AbstractJavaRepository(RepoFileImpl repoRoot) {
     super(repoRoot);
     RepoFileImpl jars = this.repoRoot.getChild(JARS_DIRECTORY);
     jars.makeDirs();
-    mavenJarIndexFile = jars.getChild(MAVEN_JAR_INDEX);
-    projectJarIndexFile = jars.getChild(PROJECT_JAR_INDEX);
-    libraryJarIndexFile = jars.getChild(LIBRARY_JAR_INDEX);
+    jarIndexFile = jars.getChild(JAR_INDEX);
+    jarsVersionFile = jars.getChild(JARS_VERSION);
   }
   
   protected abstract ObjectDeserializer<Jar> makeDeserializer();
@@ -74,49 +78,77 @@ public abstract class AbstractJavaRepository<Project extends AbstractRepoProject
   protected abstract Jar loadJar(RepoFileImpl dir);
   
   protected void reset() {
-    mavenJarIndex = null;
-    projectJarIndex = null;
-    libraryJarIndex = null;
+    jarIndex = null;
   }
   
-  protected void clearMavenJarCache() {
-    mavenJarIndexFile.delete();
+  protected void clearJarCache() {
+    jarIndexFile.delete();
+    // Other processes with the index open notice the new version
+    long version = getJarsVersion() + 1;
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(jarsVersionFile.toFile()))) {
+      out.writeLong(version);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write jars version.", e);
+    }
   }
   
-  protected void clearProjectJarCache() {
-    projectJarIndexFile.delete();
+  private long getJarsVersion() {
+    try (DataInputStream in = new DataInputStream(new FileInputStream(jarsVersionFile.toFile()))) {
+      return in.readLong();
+    } catch (FileNotFoundException e) {
+      return 0;
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to read jars version.", e);
+      return 0;
+    }
   }
   
-  protected void clearLibraryJarCache() {
-    libraryJarIndexFile.delete();
+  private long getJarStamp() {
+    RepoFileImpl jars = repoRoot.getChild(JARS_DIRECTORY);
+    // Maven jars are nested too deeply to stamp, so rely on the version bumped as they're added
+    long stamp = getJarsVersion();
+    stamp = 31 * stamp + MappedIndex.directoryStamp(jars.getChild(PROJECT_JARS_DIRECTORY).toFile());
+    return 31 * stamp + MappedIndex.directoryStamp(jars.getChild(LIBRARY_JARS_DIRECTORY).toFile());
   }
   
-  protected void loadMavenJarIndex() {
-    TaskProgressLogger task = TaskProgressLogger.get();
-    if (mavenJarIndexFile.exists() && !CLEAR_CACHES.getValue()) {
-      try (SimpleDeserializer deserializer = IOUtils.makeSimpleDeserializer(mavenJarIndexFile.toFile())) {
-        task.start("Deserializing maven index");
-        mavenJarIndex = deserializer.deserializeMap(String.class, makeDeserializer(), false);
-        task.finish();
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Error loading jar index.", e);
-        createMavenJarIndex();
+  protected boolean isJarIndexLoaded() {
+    return jarIndex != null;
+  }
+  
+  protected JarIndex<Jar> getJarIndex() {
+    JarIndex<Jar> index = jarIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = jarIndex;
+        if (index == null) {
+          TaskProgressLogger task = TaskProgressLogger.get();
+          task.start("Loading jar index");
+          MappedIndex mapped = CLEAR_CACHES.getValue() ? null : MappedIndex.open(jarIndexFile.toFile(), getJarStamp());
+          if (mapped == null) {
+            index = createJarIndex();
+          } else {
+            index = new JarIndex<>(mapped, makeDeserializer());
+          }
+          jarIndex = index;
+          task.finish();
+        }
       }
-    } else {
-      createMavenJarIndex();
     }
+    return index;
   }
   
-  private void createMavenJarIndex() {
-    mavenJarIndex = new HashMap<>();
+  private JarIndex<Jar> createJarIndex() {
+    JarIndex<Jar> index = new JarIndex<>(null, makeDeserializer());
+    long stamp = getJarStamp();
+    RepoFileImpl jars = repoRoot.getChild(JARS_DIRECTORY);
     
     Deque<RepoFileImpl> stack = new LinkedList<>();
-    stack.push(repoRoot.getChild(JARS_DIRECTORY).getChild(MAVEN_JARS_DIRECTORY));
+    stack.push(jars.getChild(MAVEN_JARS_DIRECTORY));
     while (!stack.isEmpty()) {
       RepoFileImpl dir = stack.pop();
       Jar jar = loadJar(dir);
       if (jar != null) {
-        mavenJarIndex.put(jar.getProperties().HASH.getValue(), jar);
+        index.put(jar.getProperties().HASH.getValue(), JarSource.MAVEN, jar);
       }
       for (RepoFileImpl child : dir.getChildren()) {
         if (child.isDirectory()) {
@@ -125,158 +157,158 @@ public abstract class AbstractJavaRepository<Project extends AbstractRepoProject
       }
     }
     
-    if (!mavenJarIndex.isEmpty()) {
-      SimpleSerializer serializer = null;
-      try {
-        serializer = IOUtils.makeSimpleSerializer(mavenJarIndexFile.toFile());
-        serializer.serialize(mavenJarIndex);
-        return;
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Unable to serialize maven jar index.", e);
-      } finally {
-        IOUtils.close(serializer);
-      }
-      mavenJarIndexFile.delete();
-    }
-  }
-  
-  protected void loadProjectJarIndex() {
-    if (projectJarIndexFile.exists() && !CLEAR_CACHES.getValue()) {
-      SimpleDeserializer deserializer = null;
-      try {
-        deserializer = IOUtils.makeSimpleDeserializer(projectJarIndexFile.toFile());
-        projectJarIndex = deserializer.deserializeMap(String.class, makeDeserializer(), false);
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Error loading jar index.", e);
-        createProjectJarIndex();
-      } finally {
-        IOUtils.close(deserializer);
-      }
-    } else {
-      createProjectJarIndex();
-    }
-  }
-  
-  private void createProjectJarIndex() {
-    projectJarIndex = new HashMap<>();
-    
-    RepoFileImpl projectDir = repoRoot.getChild(JARS_DIRECTORY).getChild(PROJECT_JARS_DIRECTORY);
-    for (RepoFileImpl a : projectDir.getChildren()) {
+    for (RepoFileImpl a : jars.getChild(PROJECT_JARS_DIRECTORY).getChildren()) {
       if (a.isDirectory()) {
         for (RepoFileImpl b : a.getChildren()) {
           Jar jar = loadJar(b);
           if (jar != null) {
-            projectJarIndex.put(jar.getProperties().HASH.getValue(), jar);
+            index.put(jar.getProperties().HASH.getValue(), JarSource.PROJECT, jar);
           }
         }
       }
     }
     
-    if (!projectJarIndex.isEmpty()) {
-      SimpleSerializer serializer = null;
-      try {
-        serializer = IOUtils.makeSimpleSerializer(projectJarIndexFile.toFile());
-        serializer.serialize(projectJarIndex);
-        return;
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Unable to serialize project jar index.", e);
-      } finally {
-        IOUtils.close(serializer);
+    for (RepoFileImpl child : jars.getChild(LIBRARY_JARS_DIRECTORY).getChildren()) {
+      if (child.isDirectory()) {
+        Jar jar = loadJar(child);
+        if (jar != null) {
+          index.put(jar.getProperties().HASH.getValue(), JarSource.JAVA_LIBRARY, jar);
+        }
       }
-      projectJarIndexFile.delete();
     }
-  }
-  
-  protected void loadLibraryJarIndex() {
-    if (libraryJarIndexFile.exists() && !CLEAR_CACHES.getValue()) {
-      SimpleDeserializer deserializer = null;
+    
+    if (!index.isEmpty()) {
       try {
-        deserializer = IOUtils.makeSimpleDeserializer(libraryJarIndexFile.toFile());
-        libraryJarIndex = deserializer.deserializeMap(String.class, makeDeserializer(), false);
+        index.write(jarIndexFile.toFile(), stamp);
       } catch (IOException e) {
-        logger.log(Level.SEVERE, "Error loading library jars.", e);
-        createLibraryJarIndex();
-      } finally {
-        IOUtils.close(deserializer);
+        logger.log(Level.SEVERE, "Unable to write jar index.", e);
+        jarIndexFile.delete();
       }
-    } else {
-      createLibraryJarIndex();
     }
+    return index;
   }
   
-  private void createLibraryJarIndex() {
-    libraryJarIndex = new HashMap<>();
-    
-    RepoFileImpl dir = repoRoot.getChild(JARS_DIRECTORY).getChild(LIBRARY_JARS_DIRECTORY);
-    for (RepoFileImpl child : dir.getChildren()) {
-      if (child.isDirectory()) {
-        Jar jar = loadJar(child);
-        if (jar != null) {
-          libraryJarIndex.put(jar.getProperties().HASH.getValue(), jar);
+  @Override
+  protected void reconcile(DirectoryWatcher watcher) {
+    super.reconcile(watcher);
+    RepoFileImpl jars = repoRoot.getChild(JARS_DIRECTORY);
+    watcher.register(jars.toFile());
+    // Maven jars are nested too deeply to watch, so only new top level groups are noticed
+    RepoFileImpl maven = jars.getChild(MAVEN_JARS_DIRECTORY);
+    if (maven.exists()) {
+      watcher.register(maven.toFile());
+    }
+    RepoFileImpl project = jars.getChild(PROJECT_JARS_DIRECTORY);
+    if (project.exists()) {
+      watcher.register(project.toFile());
+      for (RepoFileImpl child : project.getChildren()) {
+        if (child.isDirectory()) {
+          watcher.register(child.toFile());
         }
       }
     }
+    RepoFileImpl lib = jars.getChild(LIBRARY_JARS_DIRECTORY);
+    if (lib.exists()) {
+      watcher.register(lib.toFile());
+    }
     
-    if (!libraryJarIndex.isEmpty()) {
-      SimpleSerializer serializer = null;
-      try {
-        serializer = IOUtils.makeSimpleSerializer(libraryJarIndexFile.toFile());
-        serializer.serialize(libraryJarIndex);
-        return;
-      } catch (IOException e) {
-        logger.log(Level.SEVERE, "Unable to serialize library jars.", e);
-      } finally {
-        IOUtils.close(serializer);
+    reset();
+    clearJarCache();
+    getJarIndex();
+  }
+  
+  @Override
+  protected void applyChange(DirectoryWatcher watcher, String[] path) {
+    if (path.length > 1 && path[0].equals(JARS_DIRECTORY.getValue())) {
+      RepoFileImpl dir = repoRoot.getChild(JARS_DIRECTORY).getChild(path[1]);
+      if (path[1].equals(MAVEN_JARS_DIRECTORY.getValue())) {
+        jarsStale = true;
+      } else if (path[1].equals(PROJECT_JARS_DIRECTORY.getValue())) {
+        jarChanged(watcher, dir, path, 2, JarSource.PROJECT);
+      } else if (path[1].equals(LIBRARY_JARS_DIRECTORY.getValue())) {
+        jarChanged(watcher, dir, path, 1, JarSource.JAVA_LIBRARY);
       }
-      libraryJarIndexFile.delete();
     }
   }
   
-  public Jar getJarFile(String hash) {
-    TaskProgressLogger task = TaskProgressLogger.get();
-    if (libraryJarIndex == null) {
-      task.start("Loading library index");
-      loadLibraryJarIndex();
-      task.finish();
+  private void jarChanged(DirectoryWatcher watcher, RepoFileImpl dir, String[] path, int depth, JarSource source) {
+    // Jar directories are depth levels below the source directory
+    for (int i = 2; i < path.length && i < depth + 2; i++) {
+      dir = dir.getChild(path[i]);
     }
-    Jar jar = libraryJarIndex.get(hash);
-    if (jar == null) {
-      if (mavenJarIndex == null) {
-        task.start("Loading maven index");
-        loadMavenJarIndex();
-        task.finish();
+    if (dir.isDirectory()) {
+      findJars(watcher, dir, depth - Math.min(path.length - 2, depth), source);
+    } else {
+      // Removing jars from the index means rebuilding it
+      jarsStale = true;
+    }
+  }
+  
+  private void findJars(DirectoryWatcher watcher, RepoFileImpl dir, int depth, JarSource source) {
+    if (depth == 0) {
+      changedJars.put(dir, source);
+    } else {
+      // Only the directories that hold jar directories are watched, as in reconcile
+      watcher.register(dir.toFile());
+      for (RepoFileImpl child : dir.getChildren()) {
+        if (child.isDirectory()) {
+          findJars(watcher, child, depth - 1, source);
+        }
       }
-      jar = mavenJarIndex.get(hash);
-      if (jar == null) {
-        if (projectJarIndex == null) {
-          task.start("Loading project index");
-          loadProjectJarIndex();
-          task.finish();
+    }
+  }
+  
+  @Override
+  protected void applyChanges(DirectoryWatcher watcher, Collection<File> changed) {
+    super.applyChanges(watcher, changed);
+    if (jarsStale) {
+      reset();
+      clearJarCache();
+      getJarIndex();
+    } else if (!changedJars.isEmpty()) {
+      JarIndex<Jar> index = getJarIndex();
+      boolean added = false;
+      for (Map.Entry<RepoFileImpl, JarSource> entry : changedJars.entrySet()) {
+        // Jars whose properties aren't written yet will be picked up by a later change
+        Jar jar = loadJar(entry.getKey());
+        if (jar != null) {
+          String hash = jar.getProperties().HASH.getValue();
+          if (!index.contains(hash, entry.getValue())) {
+            index.put(hash, entry.getValue(), jar);
+            added = true;
+          }
+        }
+      }
+      if (added) {
+        try {
+          index.write(jarIndexFile.toFile(), getJarStamp());
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Unable to write jar index.", e);
+          jarIndexFile.delete();
         }
-        jar = projectJarIndex.get(hash);
       }
     }
-    return jar;
+    jarsStale = false;
+    changedJars.clear();
+  }
+  
+  public Jar getJarFile(String hash) {
+    return getJarIndex().get(hash, JarSource.JAVA_LIBRARY, JarSource.MAVEN, JarSource.PROJECT);
+  }
+  
+  public Map<String, Jar> getJarFiles(Collection<String> hashes) {
+    return getJarIndex().get(hashes, JarSource.JAVA_LIBRARY, JarSource.MAVEN, JarSource.PROJECT);
   }
   
   public Collection<Jar> getMavenJarFiles() {
-    if (mavenJarIndex == null) {
-      loadMavenJarIndex();
-    }
-    return Collections.unmodifiableCollection(mavenJarIndex.values());
+    return getJarIndex().getJars(JarSource.MAVEN);
   }
 
   public Collection<Jar> getProjectJarFiles() {
-    if (projectJarIndex == null) {
-      loadProjectJarIndex();
-    }
-    return Collections.unmodifiableCollection(projectJarIndex.values());
+    return getJarIndex().getJars(JarSource.PROJECT);
   }
   
   public Collection<Jar> getLibraryJarFiles() {
-    if (libraryJarIndex == null) {
-      loadLibraryJarIndex();
-    }
-    return Collections.unmodifiableCollection(libraryJarIndex.values());
+    return getJarIndex().getJars(JarSource.JAVA_LIBRARY);
   }
 }
@@ -0,0 +1,243 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.repo.model.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarSource;
+import edu.uci.ics.sourcerer.util.io.MappedIndex;
+import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+
+/**
+ * Hash to jar index covering every jar source, backed by a mapped index
+ * file. Each hash records all of its locations along with their source,
+ * and jars are only loaded when they're looked up. Safe to share between
+ * threads.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class JarIndex<Jar extends IJar> {
+  private final MappedIndex mapped;
+  private final ObjectDeserializer<Jar> deserializer;
+  private final ConcurrentMap<String, Entry<Jar>> entries;
+  private volatile boolean complete;
+  
+  JarIndex(MappedIndex mapped, ObjectDeserializer<Jar> deserializer) {
+    this.mapped = mapped;
+    this.deserializer = deserializer;
+    entries = new ConcurrentHashMap<>();
+    complete = mapped == null;
+  }
+  
+  private Entry<Jar> getEntry(String hash) {
+    if (hash == null) {
+      return null;
+    }
+    Entry<Jar> entry = entries.get(hash);
+    if (entry == null && !complete) {
+      String value = mapped.get(hash);
+      if (value != null) {
+        entry = parse(hash, value);
+      }
+    }
+    return entry;
+  }
+  
+  private Entry<Jar> parse(String hash, String value) {
+    List<JarSource> sources = new ArrayList<>();
+    List<String> locations = new ArrayList<>();
+    for (String line : value.split("\n")) {
+      int space = line.indexOf(' ');
+      sources.add(JarSource.valueOf(line.substring(0, space)));
+      locations.add(line.substring(space + 1));
+    }
+    Entry<Jar> entry = new Entry<>(sources.toArray(new JarSource[sources.size()]), locations.toArray(new String[locations.size()]));
+    Entry<Jar> existing = entries.putIfAbsent(hash, entry);
+    return existing == null ? entry : existing;
+  }
+  
+  /**
+   * Returns the first jar with the hash, trying the sources in order.
+   */
+  public Jar get(String hash, JarSource ... order) {
+    Entry<Jar> entry = getEntry(hash);
+    if (entry != null) {
+      for (JarSource source : order) {
+        Jar jar = entry.get(source, deserializer);
+        if (jar != null) {
+          return jar;
+        }
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Looks up many hashes at once. The result iterates in the order of the
+   * input and omits hashes that could not be found.
+   */
+  public Map<String, Jar> get(Collection<String> hashes, JarSource ... order) {
+    // Probing in key order keeps the index reads sequential
+    String[] sorted = hashes.toArray(new String[hashes.size()]);
+    Arrays.sort(sorted);
+    Map<String, Jar> found = new HashMap<>();
+    for (String hash : sorted) {
+      Jar jar = get(hash, order);
+      if (jar != null) {
+        found.put(hash, jar);
+      }
+    }
+    Map<String, Jar> result = new LinkedHashMap<>();
+    for (String hash : hashes) {
+      Jar jar = found.get(hash);
+      if (jar != null) {
+        result.put(hash, jar);
+      }
+    }
+    return result;
+  }
+  
+  public boolean contains(String hash, JarSource source) {
+    Entry<Jar> entry = getEntry(hash);
+    return entry != null && entry.indexOf(source) >= 0;
+  }
+  
+  public synchronized void put(String hash, JarSource source, Jar jar) {
+    if (hash == null) {
+      logger.severe("Jar without a hash: " + jar);
+      return;
+    }
+    Entry<Jar> entry = getEntry(hash);
+    if (entry == null) {
+      entry = new Entry<>(new JarSource[] { source }, new String[] { jar.serialize() });
+    } else {
+      entry = entry.add(source, jar.serialize());
+    }
+    entry.jars.set(entry.sources.length - 1, jar);
+    entries.put(hash, entry);
+  }
+  
+  private void loadAll() {
+    if (!complete) {
+      for (int i = 0, max = mapped.size(); i < max; i++) {
+        String hash = mapped.getKey(i);
+        if (!entries.containsKey(hash)) {
+          parse(hash, mapped.getValue(i));
+        }
+      }
+      complete = true;
+    }
+  }
+  
+  public Collection<Jar> getJars(JarSource source) {
+    loadAll();
+    Collection<Jar> jars = new ArrayList<>();
+    for (Entry<Jar> entry : entries.values()) {
+      Jar jar = entry.get(source, deserializer);
+      if (jar != null) {
+        jars.add(jar);
+      }
+    }
+    return Collections.unmodifiableCollection(jars);
+  }
+  
+  public boolean isEmpty() {
+    return entries.isEmpty() && (complete || mapped.size() == 0);
+  }
+  
+  void write(File file, long stamp) throws IOException {
+    loadAll();
+    Map<String, String> values = new HashMap<>();
+    for (Map.Entry<String, Entry<Jar>> entry : entries.entrySet()) {
+      StringBuilder value = new StringBuilder();
+      Entry<Jar> e = entry.getValue();
+      for (int i = 0; i < e.sources.length; i++) {
+        if (i > 0) {
+          value.append('\n');
+        }
+        value.append(e.sources[i].name()).append(' ').append(e.locations[i]);
+      }
+      values.put(entry.getKey(), value.toString());
+    }
+    MappedIndex.write(file, stamp, values);
+  }
+  
+  private static final class Entry<Jar extends IJar> {
+    private final JarSource[] sources;
+    private final String[] locations;
+    private final AtomicReferenceArray<Jar> jars;
+    
+    private Entry(JarSource[] sources, String[] locations) {
+      this.sources = sources;
+      this.locations = locations;
+      jars = new AtomicReferenceArray<>(sources.length);
+    }
+    
+    private int indexOf(JarSource source) {
+      for (int i = 0; i < sources.length; i++) {
+        if (sources[i] == source) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    
+    private Jar get(JarSource source, ObjectDeserializer<Jar> deserializer) {
+      for (int i = 0; i < sources.length; i++) {
+        if (sources[i] == source) {
+          Jar jar = jars.get(i);
+          if (jar == null) {
+            jar = deserializer.deserialize(new Scanner(locations[i]));
+            if (jar != null && !jars.compareAndSet(i, null, jar)) {
+              jar = jars.get(i);
+            }
+          }
+          if (jar != null) {
+            return jar;
+          }
+        }
+      }
+      return null;
+    }
+    
+    private Entry<Jar> add(JarSource source, String location) {
+      Entry<Jar> entry = new Entry<>(Arrays.copyOf(sources, sources.length + 1), Arrays.copyOf(locations, locations.length + 1));
+      entry.sources[sources.length] = source;
+      entry.locations[locations.length] = location;
+      for (int i = 0; i < sources.length; i++) {
+        entry.jars.set(i, jars.get(i));
+      }
+      return entry;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.repo.model.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
+import edu.uci.ics.sourcerer.util.io.FileHashCache;
+import edu.uci.ics.sourcerer.util.io.FileHasher;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+
+/**
+ * Content addressed store holding one copy of each unique jar, named by
+ * its hash. Jars elsewhere in the repository are hard links into the
+ * store, so a jar that is already stored can be identified from its file
+ * key without reading it.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class JarStore {
+  public static final Argument<Boolean> USE_JAR_STORE = new BooleanArgument("use-jar-store", false, "Keep one copy of each unique jar, hard linked from every place it's used.").permit();
+  public static final Argument<String> JAR_STORE_DIRECTORY = new StringArgument("jar-store-dir", "store", "Directory containing the deduplicated jars.").permit();
+  
+  private final RepoFileImpl dir;
+  private ConcurrentMap<Object, String> fileKeys;
+  private boolean linksFailed;
+  
+  JarStore(RepoFileImpl dir) {
+    this.dir = dir;
+  }
+  
+  RepoFileImpl getDirectory() {
+    return dir;
+  }
+  
+  private File getStoredFile(String hash) {
+    return new File(new File(dir.toFile(), hash.substring(0, Math.min(2, hash.length()))), hash + ".jar");
+  }
+  
+  private static Object getFileKey(File file) {
+    try {
+      return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+  
+  private synchronized ConcurrentMap<Object, String> getFileKeys() {
+    if (fileKeys == null) {
+      fileKeys = new ConcurrentHashMap<>();
+      File[] prefixes = dir.toFile().listFiles();
+      if (prefixes != null) {
+        for (File prefix : prefixes) {
+          File[] stored = prefix.listFiles();
+          if (stored != null) {
+            for (File file : stored) {
+              Object key = getFileKey(file);
+              String name = file.getName();
+              if (key != null && name.endsWith(".jar")) {
+                fileKeys.put(key, name.substring(0, name.length() - 4));
+              }
+            }
+          }
+        }
+      }
+    }
+    return fileKeys;
+  }
+  
+  /**
+   * Returns the hash of a file that is linked into the store, or null.
+   */
+  public String getHash(File file) {
+    Object key = getFileKey(file);
+    if (key == null) {
+      return null;
+    } else {
+      return getFileKeys().get(key);
+    }
+  }
+  
+  private File store(File source, String hash, boolean link) throws IOException {
+    File stored = getStoredFile(hash);
+    if (!stored.exists()) {
+      FileUtils.ensureWriteable(stored);
+      if (!link || !createLink(stored, source)) {
+        Path temp = new File(stored.getPath() + ".tmp").toPath();
+        Files.copy(source.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp, stored.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      }
+      Object key = getFileKey(stored);
+      if (key != null) {
+        getFileKeys().put(key, hash);
+      }
+    }
+    return stored;
+  }
+  
+  private boolean createLink(File link, File existing) {
+    try {
+      Files.createLink(link.toPath(), existing.toPath());
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      if (!linksFailed) {
+        logger.log(Level.SEVERE, "Unable to hard link into the jar store, falling back to copies", e);
+        linksFailed = true;
+      }
+      return false;
+    }
+  }
+  
+  /**
+   * Makes the file a hard link to the stored copy of its hash, storing it
+   * first if necessary. Returns true if an existing copy was replaced.
+   */
+  public boolean link(File file, String hash) {
+    try {
+      File stored = store(file, hash, true);
+      if (!file.exists()) {
+        FileUtils.ensureWriteable(file);
+        if (!createLink(file, stored)) {
+          Files.copy(stored.toPath(), file.toPath());
+        }
+        return false;
+      } else if (Files.isSameFile(file.toPath(), stored.toPath())) {
+        return false;
+      } else if (file.length() != stored.length()) {
+        logger.severe("Size mismatch for " + hash + ", not linking " + file.getPath());
+        return false;
+      } else {
+        Path temp = new File(file.getPath() + ".link").toPath();
+        Files.deleteIfExists(temp);
+        if (createLink(temp.toFile(), stored)) {
+          Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          // Linking changes the file's modification time, so keep the hash cache from rehashing it
+          FileHashCache cache = FileHasher.getCache();
+          if (cache != null) {
+            cache.put(file, hash);
+          }
+          return true;
+        } else {
+          return false;
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to link " + file.getPath() + " into the jar store", e);
+      return false;
+    }
+  }
+  
+  /**
+   * Creates the target as a link to the stored copy of a jar from outside
+   * the repository, which is copied rather than linked into the store.
+   */
+  public void copy(File source, String hash, File target) {
+    try {
+      store(source, hash, false);
+      link(target, hash);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to add " + source.getPath() + " to the jar store", e);
+      FileUtils.copyFile(source, target);
+    }
+  }
+}
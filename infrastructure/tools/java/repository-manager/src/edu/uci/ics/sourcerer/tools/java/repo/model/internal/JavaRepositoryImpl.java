@@ -20,8 +20,11 @@ package edu.uci.ics.sourcerer.tools.java.repo.model.internal;
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.logging.Level;
@@ -34,6 +37,8 @@ import edu.uci.ics.sourcerer.tools.java.repo.model.JarProperties;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarSource;
 import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
 import edu.uci.ics.sourcerer.util.CounterSet;
+import edu.uci.ics.sourcerer.util.io.FileHashCache;
+import edu.uci.ics.sourcerer.util.io.FileHasher;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
@@ -42,8 +47,18 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProjectImpl, JavaBatchImpl, JarFileImpl> implements ModifiableJavaRepository {
+  private JarStore store;
+  
   private JavaRepositoryImpl(RepoFileImpl repoRoot) {
     super(repoRoot);
+    if (JarStore.USE_JAR_STORE.getValue()) {
+      store = new JarStore(this.repoRoot.getChild(JARS_DIRECTORY).getChild(JarStore.JAR_STORE_DIRECTORY));
+    }
+    FileHashCache previous = FileHasher.getCache();
+    if (previous != null) {
+      previous.close();
+    }
+    FileHasher.setCache(FileHashCache.load(this.repoRoot.toFile(), this.repoRoot.getChild(HASH_CACHE).toFile(), CLEAR_CACHES.getValue()));
   }
   
   protected static JavaRepositoryImpl load(RepoFileImpl repoRoot) {
@@ -85,38 +100,35 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
   }
   
   private boolean aggregating = false;
+  private Collection<ContentFile> pendingJars;
   private Map<String, Collection<ContentFile>> aggregationMap;
   
   public JarFileImpl getJarFile(ContentFile file) {
-    String hash = FileUtils.computeHash(file.getFile().toFile());
-    if (hash == null) {
+    // While aggregating, the jars are hashed together once every project has been walked
+    if (aggregating) {
+      pendingJars.add(file);
       return null;
     }
-    if (mavenJarIndex == null) {
-      loadMavenJarIndex();
+    String hash = computeHash(file.getFile().toFile());
+    if (hash == null) {
+      return null;
     }
-    JarFileImpl jar = mavenJarIndex.get(hash);
-    if (jar == null) {
-      if (projectJarIndex == null) {
-        loadProjectJarIndex();
-      }
-      jar = projectJarIndex.get(hash);
-      if (jar == null) {
-        if (libraryJarIndex == null) {
-          loadLibraryJarIndex();
-        }
-        jar = libraryJarIndex.get(hash);
-        if (jar == null && aggregating) {
-          Collection<ContentFile> files = aggregationMap.get(hash);
-          if (files == null) {
-            files = new LinkedList<>();
-            aggregationMap.put(hash, files);
-          }
-          files.add(file);
-        }
+    return lookupJar(hash);
+  }
+  
+  private String computeHash(File file) {
+    // Jars linked into the store are identified without reading them
+    if (store != null) {
+      String hash = store.getHash(file);
+      if (hash != null) {
+        return hash;
       }
     }
-    return jar;
+    return FileUtils.computeHash(file);
+  }
+  
+  private JarFileImpl lookupJar(String hash) {
+    return getJarIndex().get(hash, JarSource.MAVEN, JarSource.PROJECT, JarSource.JAVA_LIBRARY);
   }
 
   @Override
@@ -125,6 +137,7 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
     task.start("Aggregating jar files");
     
     aggregating = true;
+    pendingJars = new ArrayList<>();
     aggregationMap = new HashMap<>();
     
     task.start("Processing projects", "projects processed", 500);
@@ -134,6 +147,36 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
     }
     task.finish();
     
+    task.start("Hashing " + pendingJars.size() + " project jars with " + FileHasher.HASH_THREADS.getValue() + " threads");
+    Map<File, String> hashes = new HashMap<>();
+    Collection<File> jarFiles = new ArrayList<>(pendingJars.size());
+    for (ContentFile file : pendingJars) {
+      File jarFile = file.getFile().toFile();
+      String hash = store == null ? null : store.getHash(jarFile);
+      if (hash == null) {
+        jarFiles.add(jarFile);
+      } else {
+        hashes.put(jarFile, hash);
+      }
+    }
+    hashes.putAll(FileHasher.hash(jarFiles));
+    Collection<String> unique = new HashSet<>(hashes.values());
+    unique.remove(null);
+    Map<String, JarFileImpl> known = getJarIndex().get(unique, JarSource.MAVEN, JarSource.PROJECT, JarSource.JAVA_LIBRARY);
+    for (ContentFile file : pendingJars) {
+      String hash = hashes.get(file.getFile().toFile());
+      if (hash != null && !known.containsKey(hash)) {
+        Collection<ContentFile> files = aggregationMap.get(hash);
+        if (files == null) {
+          files = new LinkedList<>();
+          aggregationMap.put(hash, files);
+        }
+        files.add(file);
+      }
+    }
+    pendingJars = null;
+    task.finish();
+    
     RepoFileImpl projectDir = repoRoot.getChild(JARS_DIRECTORY).getChild(PROJECT_JARS_DIRECTORY);
     
     task.start("Finding next project jar path");
@@ -183,8 +226,16 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
       // Make the directory
       dir.makeDirs();
 
-      // Copy the file
-      FileUtils.copyFile(entry.getValue().iterator().next().getFile().toFile(), dir.getChild(JarFileImpl.JAR_NAME).toFile());
+      // Copy the file, or link it and every project copy to the store
+      File jarFile = dir.getChild(JarFileImpl.JAR_NAME).toFile();
+      if (store == null) {
+        FileUtils.copyFile(entry.getValue().iterator().next().getFile().toFile(), jarFile);
+      } else {
+        for (ContentFile file : entry.getValue()) {
+          store.link(file.getFile().toFile(), entry.getKey());
+        }
+        store.link(jarFile, entry.getKey());
+      }
       
       // Populate the properties
       JarFileImpl jar = JarFileImpl.create(dir);
@@ -207,7 +258,7 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
     aggregating = false;
     aggregationMap = null;
     reset();
-    clearProjectJarCache();
+    clearJarCache();
     for (JavaProjectImpl project : getProjects()) {
       project.getContent().init(false, true);
     }
@@ -217,13 +268,23 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
   // TODO: make this handle overwriting
   @Override
   public void addLibraryJarFile(File jar, File source) {
+    String hash = FileUtils.computeHash(jar);
+    if (hash == null) {
+      logger.log(Level.SEVERE, "Unable to hash library jar: " + jar.getPath());
+      return;
+    }
+    
     RepoFileImpl dir = repoRoot.getChild(JARS_DIRECTORY).getChild(LIBRARY_JARS_DIRECTORY).getChild(jar.getName());
     
     // Make the directory
     dir.makeDirs();
     
     // Copy the files
-    FileUtils.copyFile(jar, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+    if (store == null) {
+      FileUtils.copyFile(jar, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+    } else {
+      store.copy(jar, hash, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+    }
     if (source != null && source.exists()) {
       FileUtils.copyFile(source, dir.getChild(JarFileImpl.SOURCE_JAR_NAME).toFile());
     }
@@ -234,24 +295,27 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
     JarProperties properties = newJar.getProperties();
     properties.NAME.setValue(jar.getName());
     properties.SOURCE.setValue(JarSource.JAVA_LIBRARY);
-    properties.HASH.setValue(FileUtils.computeHash(jar));
+    properties.HASH.setValue(hash);
     properties.save();
     
-    clearLibraryJarCache();
-    if (libraryJarIndex != null) {
-      libraryJarIndex.put(properties.HASH.getValue(), newJar);
+    clearJarCache();
+    if (isJarIndexLoaded()) {
+      getJarIndex().put(properties.HASH.getValue(), JarSource.JAVA_LIBRARY, newJar);
     }
   }
   
   @Override
   public void addMavenJarFile(File jar, File source, String group, String artifact, String version) {
-    if (mavenJarIndex == null) {
-      loadMavenJarIndex();
-    }
     String hash = FileUtils.computeHash(jar);
-    while (mavenJarIndex.containsKey(hash)) {
+    if (hash == null) {
+      logger.log(Level.SEVERE, "Unable to hash maven jar: " + group + "." + artifact + " (" + version + ")");
+      return;
+    }
+    JarIndex<JarFileImpl> jarIndex = getJarIndex();
+    String contentHash = hash;
+    while (jarIndex.contains(hash, JarSource.MAVEN)) {
       logger.info("Difficulty matching: " + group + "." + artifact + " (" + version + ")");
-      JarFileImpl mavenJar = mavenJarIndex.get(hash);
+      JarFileImpl mavenJar = jarIndex.get(hash, JarSource.MAVEN);
       logger.info("  Found duplicate at: " + mavenJar);
       JarProperties properties = mavenJar.getProperties();
       // If it's not exactly equal, just add the duplicate, giving the original priority
@@ -273,7 +337,11 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
       dir.makeDirs();
       
       // Copy the files
-      FileUtils.copyFile(jar, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+      if (store == null) {
+        FileUtils.copyFile(jar, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+      } else {
+        store.copy(jar, contentHash, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+      }
       if (source != null && source.exists()) {
         FileUtils.copyFile(source, dir.getChild(JarFileImpl.SOURCE_JAR_NAME).toFile());
       }
@@ -288,7 +356,64 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
       properties.HASH.setValue(hash);
       properties.VERSION.setValue(version);
       properties.save();
+      
+      clearJarCache();
+      jarIndex.put(hash, JarSource.MAVEN, newJar);
+    }
+  }
+  
+  @Override
+  public void dedupeJarFiles() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Deduplicating jar files in " + repoRoot.toFile().getPath());
+    if (store == null) {
+      store = new JarStore(repoRoot.getChild(JARS_DIRECTORY).getChild(JarStore.JAR_STORE_DIRECTORY));
+    }
+    File storeDir = store.getDirectory().toFile();
+    
+    task.start("Finding jar files", "directories searched", 1000);
+    Collection<File> jarFiles = new ArrayList<>();
+    Deque<File> stack = new LinkedList<>();
+    stack.push(repoRoot.toFile());
+    while (!stack.isEmpty()) {
+      File[] children = stack.pop().listFiles();
+      if (children != null) {
+        for (File child : children) {
+          if (child.isDirectory()) {
+            if (!child.equals(storeDir)) {
+              stack.push(child);
+            }
+          } else if (child.getName().endsWith(".jar")) {
+            jarFiles.add(child);
+          }
+        }
+      }
+      task.progress();
     }
+    task.finish();
+    task.report(jarFiles.size() + " jar files found");
+    
+    task.start("Hashing " + jarFiles.size() + " jar files");
+    Map<File, String> hashes = FileHasher.hash(jarFiles);
+    task.finish();
+    
+    task.start("Linking jar files into the store", "jar files linked", 1000);
+    int linked = 0;
+    long saved = 0;
+    for (Map.Entry<File, String> entry : hashes.entrySet()) {
+      if (entry.getValue() != null) {
+        long length = entry.getKey().length();
+        if (store.link(entry.getKey(), entry.getValue())) {
+          linked++;
+          saved += length;
+        }
+        task.progress();
+      }
+    }
+    task.finish();
+    task.report(linked + " duplicate copies replaced with links, saving " + (saved >> 20) + "MB");
+    
+    task.finish();
   }
   
   @Override
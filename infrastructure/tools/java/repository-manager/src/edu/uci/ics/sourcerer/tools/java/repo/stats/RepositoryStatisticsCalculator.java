@@ -17,8 +17,22 @@
  */
 package edu.uci.ics.sourcerer.tools.java.repo.stats;
 
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ContentFile;
 import edu.uci.ics.sourcerer.tools.core.repo.model.FileSet;
@@ -30,24 +44,82 @@ import edu.uci.ics.sourcerer.util.CreationistMap;
 import edu.uci.ics.sourcerer.util.SizeCounter;
 import edu.uci.ics.sourcerer.util.io.TablePrettyPrinter;
 import edu.uci.ics.sourcerer.util.io.TablePrettyPrinter.Alignment;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class RepositoryStatisticsCalculator {
+  public static final Argument<Integer> STATS_THREADS = new IntegerArgument("stats-threads", 4, "Number of threads used to analyze projects.");
+  public static final Argument<Integer> MAX_PENDING_PROJECTS = new IntegerArgument("max-pending-projects", 1000, "Maximum number of analyzed projects held in memory before being merged into the totals.");
+  
   private RepositoryStatisticsCalculator() {}
   
-  public static void calculateRepositoryStatistics() {
-    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+  private static class ProjectStats {
+    String source;
+    boolean hasFiles;
+    int filteredFiles;
+    SizeCounter totalSize = new SizeCounter();
+    // Keeps the order the extensions were found in, so merging matches a sequential pass
+    Map<String, SizeCounter> fileSizes = new LinkedHashMap<>();
+  }
+  
+  private static class Stats {
+    int projects = 0;
+    int projectsWithFiles = 0;
+    int filteredFiles = 0;
+    SizeCounter totalSize = new SizeCounter();
+    CreationistMap<String, SizeCounter> fileSizes = new CreationistMap<>(SizeCounter.class);
+    
+    void add(ProjectStats project) {
+      projects++;
+      if (project.hasFiles) {
+        projectsWithFiles++;
+        filteredFiles += project.filteredFiles;
+        totalSize.add(project.totalSize);
+        for (Map.Entry<String, SizeCounter> entry : project.fileSizes.entrySet()) {
+          fileSizes.get(entry.getKey()).add(entry.getValue());
+        }
+      }
+    }
+  }
+  
+  private static ProjectStats analyze(JavaProject project) {
+    ProjectStats stats = new ProjectStats();
+    stats.source = project.getProperties().SOURCE.getValue();
     
-    class Stats {
-      int projects = 0;
-      int projectsWithFiles = 0;
-      int filteredFiles = 0;
-      SizeCounter totalSize = new SizeCounter();
-      CreationistMap<String, SizeCounter> fileSizes = new CreationistMap<>(SizeCounter.class);
+    Collection<? extends ContentFile> files = project.getContent().getFiles();
+    stats.filteredFiles = project.getContent().getFilteredJavaFiles().size();
+    if (!files.isEmpty()) {
+      stats.hasFiles = true;
+      for (ContentFile file : files) {
+        RepoFile rFile = file.getFile();
+        long length = rFile.toFile().length();
+        
+        stats.totalSize.add(length);
+        
+        String extension = rFile.getName();
+        int idx = extension.lastIndexOf('.');
+        if (idx == -1) {
+          extension = "No Extension";
+        } else {
+          extension = extension.substring(idx);
+        }
+        SizeCounter counter = stats.fileSizes.get(extension);
+        if (counter == null) {
+          counter = new SizeCounter();
+          stats.fileSizes.put(extension, counter);
+        }
+        counter.add(length);
+      }
     }
+    return stats;
+  }
+  
+  public static void calculateRepositoryStatistics() {
+    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
     
     CreationistMap<String, Stats> statsBySource = new CreationistMap<>(Stats.class);
     
@@ -56,41 +128,55 @@ public class RepositoryStatisticsCalculator {
     task.start("Analyzing projects", "projects analyzed", 100);
     
     Stats totalStats = new Stats();
-    for (JavaProject project : repo.getProjects()) {
-      Stats stats = statsBySource.get(project.getProperties().SOURCE.getValue());
-      
-      // Count the project
-      stats.projects++;
-      totalStats.projects++;
-      
-      Collection<? extends ContentFile> files = project.getContent().getFiles();
-      int filteredFiles = project.getContent().getFilteredJavaFiles().size();;
-      if (!files.isEmpty()) {
-        stats.projectsWithFiles++;
-        totalStats.projectsWithFiles++;
-
-        stats.filteredFiles += filteredFiles;
-        totalStats.filteredFiles += filteredFiles;
+    int threads = STATS_THREADS.getValue();
+    if (threads <= 1) {
+      for (JavaProject project : repo.getProjects()) {
+        ProjectStats stats = analyze(project);
+        statsBySource.get(stats.source).add(stats);
+        totalStats.add(stats);
+        task.progress("%d projects analyzed");
+      }
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
         
-        for (ContentFile file : files) {
-          RepoFile rFile = file.getFile();
-          long length = rFile.toFile().length();
-          
-          stats.totalSize.add(length);
-          totalStats.totalSize.add(length);
-          
-          String extension = rFile.getName();
-          int idx = extension.lastIndexOf('.');
-          if (idx == -1) {
-            extension = "No Extension";
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "repo-stats-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      try {
+        // Results are merged in project order, and only a bounded number are held at once
+        Deque<Future<ProjectStats>> pending = new ArrayDeque<>();
+        Iterator<? extends JavaProject> projects = repo.getProjects().iterator();
+        while (projects.hasNext() || !pending.isEmpty()) {
+          if (projects.hasNext() && pending.size() < Math.max(1, MAX_PENDING_PROJECTS.getValue())) {
+            final JavaProject project = projects.next();
+            pending.add(executor.submit(new Callable<ProjectStats>() {
+              @Override
+              public ProjectStats call() {
+                return analyze(project);
+              }
+            }));
           } else {
-            extension = extension.substring(idx);
+            try {
+              ProjectStats stats = pending.poll().get();
+              statsBySource.get(stats.source).add(stats);
+              totalStats.add(stats);
+            } catch (ExecutionException e) {
+              logger.log(Level.SEVERE, "Error analyzing project", e.getCause());
+            }
+            task.progress("%d projects analyzed");
           }
-          stats.fileSizes.get(extension).add(length);
-          totalStats.fileSizes.get(extension).add(length);
         }
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Interrupted while analyzing projects", e);
+        Thread.currentThread().interrupt();
+      } finally {
+        executor.shutdownNow();
       }
-      task.progress("%d projects analyzed");
     }
     task.finish();
     
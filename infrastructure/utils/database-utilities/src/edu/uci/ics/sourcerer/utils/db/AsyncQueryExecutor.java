@@ -0,0 +1,40 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.concurrent.Future;
+
+import edu.uci.ics.sourcerer.utils.db.sql.ResultConstructor;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public interface AsyncQueryExecutor extends Closeable {
+  public <T> Future<T> submit(QueryCallable<T> callable);
+  
+  public Future<Void> executeUpdate(String sql);
+  
+  public <T> Future<Collection<T>> select(QueryCallable<SelectQuery> query, Selectable<T> selectable);
+  public <T> Future<Collection<T>> select(QueryCallable<SelectQuery> query, ResultConstructor<T> constructor);
+  
+  public void close();
+}
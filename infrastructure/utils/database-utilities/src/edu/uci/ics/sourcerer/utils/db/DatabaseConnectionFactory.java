@@ -18,6 +18,8 @@
 package edu.uci.ics.sourcerer.utils.db;
 
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 import edu.uci.ics.sourcerer.utils.db.internal.InternalDatabaseConnectionFactory;
 
@@ -28,8 +30,12 @@ public abstract class DatabaseConnectionFactory {
   public static final Argument<String> DATABASE_URL = new StringArgument("database-url", "Url of the database.");
   public static final Argument<String> DATABASE_USER = new StringArgument("database-user", "Database user account to use when connecting.");
   public static final Argument<String> DATABASE_PASSWORD = new StringArgument("database-password", null, "Password for the user account.");
+  public static final Argument<Boolean> QUERY_STATISTICS = new BooleanArgument("query-statistics", false, "Report per-statement timing histograms and row counts as each task finishes.").permit();
+  public static final Argument<Integer> SLOW_QUERY_THRESHOLD = new IntegerArgument("slow-query-threshold", 0, "Log statements taking at least this many milliseconds, 0 to disable.").permit();
   
   public static final DatabaseConnectionFactory INSTANCE = new InternalDatabaseConnectionFactory();
   
   public abstract DatabaseConnection create();
+  
+  public abstract AsyncQueryExecutor createAsyncExecutor(int poolSize);
 }
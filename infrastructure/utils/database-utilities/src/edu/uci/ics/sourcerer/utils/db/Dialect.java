@@ -0,0 +1,86 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import edu.uci.ics.sourcerer.utils.db.internal.H2Dialect;
+import edu.uci.ics.sourcerer.utils.db.internal.MySqlDialect;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public abstract class Dialect {
+  public static Dialect forUrl(String url) {
+    if (url.startsWith("jdbc:h2:")) {
+      return new H2Dialect();
+    } else {
+      return new MySqlDialect();
+    }
+  }
+  
+  public abstract String getDriver();
+  
+  // Column types
+  public abstract String getSerialType();
+  public abstract String getIntType(boolean unsigned);
+  public abstract String getBigIntType(boolean unsigned);
+  public abstract String getFloatType();
+  public abstract String getFloatType(int totalDigits, int decimalDigits);
+  public abstract String getBooleanType();
+  public abstract String getVarcharType(int size);
+  public abstract String getEnumType(Enum<?>[] values);
+  public abstract String getSetType(Enum<?>[] values);
+  
+  // Indexes
+  public abstract boolean hasInlineIndexes();
+  public abstract String getIndex(Column<?> column, int prefixLength);
+  
+  // Expressions
+  public abstract String getBitAnd(String left, String right);
+  
+  // Bulk loading
+  public abstract String getLoadFile(File file, DatabaseTable table);
+  public abstract String translateValues(String values);
+  
+  // Key retrieval
+  public ResultSet executeUpdateWithKeys(java.sql.Statement statement, String sql) throws SQLException {
+    statement.executeUpdate(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
+    return statement.getGeneratedKeys();
+  }
+  
+  // Results
+  public abstract int getStreamedFetchSize();
+  public abstract String getString(ResultSet result, int index) throws SQLException;
+  
+  // Locking
+  public abstract boolean supportsTableLocks();
+  
+  protected static String makeValueList(Enum<?>[] values) {
+    StringBuilder builder = new StringBuilder("(");
+    for (Enum<?> value : values) {
+      builder.append('\'').append(value.name()).append("',");
+    }
+    builder.setCharAt(builder.length() - 1, ')');
+    return builder.toString();
+  }
+}
@@ -0,0 +1,96 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class InsertCounts {
+  private final Map<String, Count> counts;
+  
+  public InsertCounts() {
+    counts = new TreeMap<>();
+  }
+  
+  public void add(String table, long rows, long bytes, long nanos) {
+    Count count = counts.get(table);
+    if (count == null) {
+      count = new Count(table);
+      counts.put(table, count);
+    }
+    count.rows += rows;
+    count.bytes += bytes;
+    count.nanos += nanos;
+  }
+  
+  public Collection<Count> getCounts() {
+    return counts.values();
+  }
+  
+  public InsertCounts copy() {
+    InsertCounts copy = new InsertCounts();
+    for (Count count : counts.values()) {
+      copy.add(count.table, count.rows, count.bytes, count.nanos);
+    }
+    return copy;
+  }
+  
+  public InsertCounts since(InsertCounts earlier) {
+    InsertCounts diff = new InsertCounts();
+    for (Count count : counts.values()) {
+      Count before = earlier.counts.get(count.table);
+      if (before == null) {
+        diff.add(count.table, count.rows, count.bytes, count.nanos);
+      } else if (count.rows > before.rows) {
+        diff.add(count.table, count.rows - before.rows, count.bytes - before.bytes, count.nanos - before.nanos);
+      }
+    }
+    return diff;
+  }
+  
+  public static final class Count {
+    private final String table;
+    private long rows;
+    private long bytes;
+    private long nanos;
+    
+    private Count(String table) {
+      this.table = table;
+    }
+    
+    public String getTable() {
+      return table;
+    }
+    
+    public long getRows() {
+      return rows;
+    }
+    
+    public long getBytes() {
+      return bytes;
+    }
+    
+    public long getNanos() {
+      return nanos;
+    }
+  }
+}
@@ -19,7 +19,10 @@ package edu.uci.ics.sourcerer.utils.db;
 
 import java.io.Closeable;
 import java.io.File;
+import java.util.Collection;
+import java.util.List;
 
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.ComparisonCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
@@ -31,6 +34,7 @@ import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public interface QueryExecutor extends Closeable {
+  public Dialect getDialect();
   public TableLocker getTableLocker();
   public BatchInserter makeInFileInserter(File tempDir, DatabaseTable table);
 
@@ -47,9 +51,14 @@ public interface QueryExecutor extends Closeable {
   // Typed Updates
   public void createTable(DatabaseTable table);
   public void createTables(DatabaseTable ... tables);
+  public void createTablesDeferringIndexes(Collection<? extends Column<?>> deferred, DatabaseTable ... tables);
+  public int addIndexes(DatabaseTable table);
   public void dropTables(DatabaseTable ... tables);
   public void insert(Insert insert);
   public Integer insertWithKey(Insert insert);
+  public List<Integer> insertWithKeys(List<? extends Insert> inserts);
+  public long getInsertedRows();
+  public InsertCounts getInsertCounts();
   public SetStatement createSetStatement(DatabaseTable table);
   public DeleteStatement createDeleteStatement(DatabaseTable table);
   
@@ -0,0 +1,118 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uci.ics.sourcerer.utils.db.AsyncQueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.QueryCallable;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.internal.ConnectionPool.PooledConnection;
+import edu.uci.ics.sourcerer.utils.db.sql.ResultConstructor;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class AsyncQueryExecutorImpl implements AsyncQueryExecutor {
+  private static final AtomicInteger poolCount = new AtomicInteger();
+  
+  private final ConnectionPool pool;
+  private final ExecutorService executor;
+  
+  AsyncQueryExecutorImpl(int poolSize) {
+    pool = new ConnectionPool(poolSize);
+    final String prefix = "async-query-" + poolCount.incrementAndGet() + "-";
+    executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+      
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+  
+  @Override
+  public <T> Future<T> submit(final QueryCallable<T> callable) {
+    return executor.submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        PooledConnection conn = pool.acquire();
+        boolean failed = true;
+        try {
+          T result = callable.call(conn.getExecutor());
+          failed = false;
+          return result;
+        } finally {
+          pool.release(conn, failed);
+        }
+      }
+    });
+  }
+  
+  @Override
+  public Future<Void> executeUpdate(final String sql) {
+    return submit(new QueryCallable<Void>() {
+      @Override
+      public Void call(QueryExecutor exec) {
+        exec.executeUpdate(sql);
+        return null;
+      }
+    });
+  }
+  
+  @Override
+  public <T> Future<Collection<T>> select(final QueryCallable<SelectQuery> query, final Selectable<T> selectable) {
+    return submit(new QueryCallable<Collection<T>>() {
+      @Override
+      public Collection<T> call(QueryExecutor exec) {
+        try (SelectQuery select = query.call(exec)) {
+          return select.select().toCollection(selectable);
+        }
+      }
+    });
+  }
+  
+  @Override
+  public <T> Future<Collection<T>> select(final QueryCallable<SelectQuery> query, final ResultConstructor<T> constructor) {
+    return submit(new QueryCallable<Collection<T>>() {
+      @Override
+      public Collection<T> call(QueryExecutor exec) {
+        try (SelectQuery select = query.call(exec)) {
+          return select.select().toCollection(constructor);
+        }
+      }
+    });
+  }
+  
+  @Override
+  public void close() {
+    executor.shutdown();
+    pool.close();
+  }
+}
@@ -21,12 +21,19 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
+
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 class BooleanColumn extends ColumnImpl<Boolean> {
   BooleanColumn(DatabaseTableImpl table, String name, boolean nullable) {
-    super(table, name, "BOOLEAN" + (nullable ? "" : " NOT NULL"), nullable, Types.BOOLEAN);
+    super(table, name, nullable, Types.BOOLEAN);
+  }
+  
+  @Override
+  protected String getTypeHelper(Dialect dialect) {
+    return dialect.getBooleanType();
   }
   
   @Override
@@ -21,6 +21,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Collection;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.internal.ConstantConditionImpl.Type;
 import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.ComparisonCondition;
@@ -37,15 +38,13 @@ import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
 abstract class ColumnImpl<T> implements Column<T> {
   private final DatabaseTableImpl table;
   private final String name;
-  private final String type;
   private boolean nullable;
   private boolean indexed;
   private final int sqlType;
   
-  ColumnImpl(DatabaseTableImpl table, String name, String type, boolean nullable, int sqlType) {
+  ColumnImpl(DatabaseTableImpl table, String name, boolean nullable, int sqlType) {
     this.table = table;
     this.name = name;
-    this.type = type;
     this.nullable = nullable;
     this.sqlType = sqlType;
   }
@@ -56,9 +55,15 @@ abstract class ColumnImpl<T> implements Column<T> {
   }
 
   @Override
-  public final String getType() {
-    return type;
+  public String getType(Dialect dialect) {
+    if (nullable) {
+      return getTypeHelper(dialect);
+    } else {
+      return getTypeHelper(dialect) + " NOT NULL";
+    }
   }
+  
+  protected abstract String getTypeHelper(Dialect dialect);
 
   @Override
   public final Column<T> addIndex() {
@@ -72,9 +77,9 @@ abstract class ColumnImpl<T> implements Column<T> {
   }
 
   @Override
-  public String getIndex() {
+  public String getIndex(Dialect dialect) {
     if (indexed) {
-      return "INDEX(" + name + ")";
+      return dialect.getIndex(this, 0);
     } else {
       throw new IllegalArgumentException(name + " is not indexed");
     }
@@ -168,6 +173,11 @@ abstract class ColumnImpl<T> implements Column<T> {
     return createConstantCondition(this, Type.NOT_EQUALS).setValue(value);
   }
   
+  @Override
+  public final ConstantCondition<T> compareGreaterThan(T value) {
+    return createConstantCondition(this, Type.GREATER_THAN).setValue(value);
+  }
+  
   @Override
   public InConstantCondition<T> compareIn(Collection<T> values) {
     return new InConstantConditionImpl<>(this, InConstantConditionImpl.Type.IN, values);
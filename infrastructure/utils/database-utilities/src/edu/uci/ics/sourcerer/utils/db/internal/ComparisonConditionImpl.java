@@ -18,6 +18,7 @@
 package edu.uci.ics.sourcerer.utils.db.internal;
 
 import edu.uci.ics.sourcerer.util.ArrayUtils;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.ComparisonCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
 import edu.uci.ics.sourcerer.utils.db.sql.Table;
@@ -55,7 +56,7 @@ class ComparisonConditionImpl extends ConditionImpl implements ComparisonConditi
   }
   
   @Override
-  public void toSql(StringBuilder builder) {
+  public void toSql(StringBuilder builder, Dialect dialect) {
     left.toSql(builder);
     builder.append("=");
     right.toSql(builder);
@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.utils.db.internal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.CompoundCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Condition;
 import edu.uci.ics.sourcerer.utils.db.sql.Table;
@@ -56,17 +57,17 @@ class CompoundConditionImpl extends ConditionImpl implements CompoundCondition {
   }
   
   @Override
-  public void toSql(StringBuilder builder) {
+  public void toSql(StringBuilder builder, Dialect dialect) {
     if (type == Type.OR) {
       builder.append("((");
-      left.toSql(builder);
+      left.toSql(builder, dialect);
       builder.append(") ").append(type.name()).append(" (");
-      right.toSql(builder);
+      right.toSql(builder, dialect);
       builder.append("))");
     } else {
-      left.toSql(builder);
+      left.toSql(builder, dialect);
       builder.append(" ").append(type.name()).append(" ");
-      right.toSql(builder);
+      right.toSql(builder, dialect);
     }
   }
 }
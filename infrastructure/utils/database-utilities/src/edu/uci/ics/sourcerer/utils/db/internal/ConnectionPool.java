@@ -0,0 +1,142 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.io.Closeable;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class ConnectionPool implements Closeable {
+  // The server drops idle connections (wait_timeout), so check any that sat this long
+  private static final long VALIDATE_AFTER_MILLIS = 30 * 1000;
+  private static final int VALIDATE_TIMEOUT_SECONDS = 5;
+  
+  private final int maxSize;
+  private final BlockingDeque<PooledConnection> idle;
+  private int created;
+  private boolean closed;
+  
+  ConnectionPool(int maxSize) {
+    this.maxSize = maxSize;
+    idle = new LinkedBlockingDeque<>();
+  }
+  
+  PooledConnection acquire() throws InterruptedException {
+    while (true) {
+      PooledConnection conn = idle.pollFirst();
+      if (conn == null) {
+        synchronized (this) {
+          if (closed) {
+            throw new IllegalStateException("Pool is closed");
+          } else if (created < maxSize) {
+            conn = new PooledConnection();
+            if (conn.open()) {
+              created++;
+              return conn;
+            } else {
+              throw new IllegalStateException("Unable to open pooled connection");
+            }
+          }
+        }
+        // Wake up now and then, in case a discarded connection made room for a new one
+        conn = idle.pollFirst(1, TimeUnit.SECONDS);
+      }
+      if (conn != null) {
+        if (conn.isValid()) {
+          return conn;
+        } else {
+          discard(conn);
+        }
+      }
+    }
+  }
+  
+  void release(PooledConnection conn, boolean failed) {
+    boolean discard;
+    synchronized (this) {
+      discard = closed || failed;
+    }
+    if (discard) {
+      discard(conn);
+    } else {
+      conn.lastReleased = System.currentTimeMillis();
+      idle.offerFirst(conn);
+    }
+  }
+  
+  private void discard(PooledConnection conn) {
+    synchronized (this) {
+      created--;
+    }
+    conn.close();
+  }
+  
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    for (PooledConnection conn = idle.pollFirst(); conn != null; conn = idle.pollFirst()) {
+      conn.close();
+      synchronized (this) {
+        created--;
+      }
+    }
+  }
+  
+  static class PooledConnection {
+    private final DatabaseConnectionImpl connection;
+    private QueryExecutor exec;
+    private long lastReleased;
+    
+    private PooledConnection() {
+      connection = new DatabaseConnectionImpl();
+    }
+    
+    private boolean open() {
+      if (connection.open()) {
+        exec = connection.getExecutor();
+        return exec != null;
+      } else {
+        return false;
+      }
+    }
+    
+    private boolean isValid() {
+      if (System.currentTimeMillis() - lastReleased < VALIDATE_AFTER_MILLIS) {
+        return true;
+      } else {
+        return connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+      }
+    }
+    
+    QueryExecutor getExecutor() {
+      return exec;
+    }
+    
+    private void close() {
+      connection.close();
+    }
+  }
+}
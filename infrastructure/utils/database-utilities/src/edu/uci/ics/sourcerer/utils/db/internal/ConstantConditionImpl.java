@@ -21,6 +21,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import edu.uci.ics.sourcerer.util.ArrayUtils;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
 import edu.uci.ics.sourcerer.utils.db.sql.Table;
@@ -32,6 +33,7 @@ class ConstantConditionImpl<T> extends ConditionImpl implements ConstantConditio
   enum Type {
     EQUALS,
     NOT_EQUALS,
+    GREATER_THAN,
     LIKE;
   }
   
@@ -64,11 +66,12 @@ class ConstantConditionImpl<T> extends ConditionImpl implements ConstantConditio
   }
 
   @Override
-  public void toSql(StringBuilder builder) {
+  public void toSql(StringBuilder builder, Dialect dialect) {
     sel.toSql(builder);
     switch (type) {
       case EQUALS: builder.append("=?"); break;
       case NOT_EQUALS: builder.append("<>?"); break;
+      case GREATER_THAN: builder.append(">?"); break;
       case LIKE: builder.append(" like ?"); break;
       default: throw new IllegalStateException("Unknown type: " + type);
     }
@@ -22,10 +22,14 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 
 /**
@@ -33,11 +37,21 @@ import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
  */
 class DatabaseConnectionImpl implements DatabaseConnection {
   private Connection connection;
+  private Dialect dialect;
+  private final Collection<QueryExecutorImpl> executors;
   
-  DatabaseConnectionImpl() {}
+  DatabaseConnectionImpl() {
+    executors = new HashSet<>();
+  }
   
   @Override
   public boolean open() {
+    dialect = Dialect.forUrl(DatabaseConnectionFactory.DATABASE_URL.getValue());
+    try {
+      Class.forName(dialect.getDriver());
+    } catch (ClassNotFoundException e) {
+      logger.log(Level.SEVERE, "Exception registering driver", e);
+    }
     try {
       connection = DriverManager.getConnection(DatabaseConnectionFactory.DATABASE_URL.getValue(), DatabaseConnectionFactory.DATABASE_USER.getValue(), DatabaseConnectionFactory.DATABASE_PASSWORD.getValue());
       return true;
@@ -50,6 +64,14 @@ class DatabaseConnectionImpl implements DatabaseConnection {
   
   @Override
   public void close() {
+    // Closing an executor removes it from the set
+    Collection<QueryExecutorImpl> open;
+    synchronized (executors) {
+      open = new ArrayList<>(executors);
+    }
+    for (QueryExecutorImpl exec : open) {
+      exec.close();
+    }
     try {
       if (connection != null) {
         connection.close();
@@ -59,12 +81,33 @@ class DatabaseConnectionImpl implements DatabaseConnection {
     }
   }
   
+  void executorClosed(QueryExecutorImpl exec) {
+    synchronized (executors) {
+      executors.remove(exec);
+    }
+  }
+  
+  boolean isValid(int timeoutSeconds) {
+    try {
+      return connection != null && connection.isValid(timeoutSeconds);
+    } catch (SQLException e) {
+      logger.log(Level.WARNING, "Exception validating connection", e);
+      return false;
+    }
+  }
+  
   @Override
   public QueryExecutor getExecutor() {
     if (connection == null) {
       throw new IllegalStateException("Must open connection first.");
     } else {
-      return QueryExecutorImpl.make(connection);
+      QueryExecutorImpl exec = QueryExecutorImpl.make(this, connection, dialect);
+      if (exec != null) {
+        synchronized (executors) {
+          executors.add(exec);
+        }
+      }
+      return exec;
     }
   }
 }
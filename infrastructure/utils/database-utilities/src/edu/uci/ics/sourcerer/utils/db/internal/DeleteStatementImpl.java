@@ -55,7 +55,7 @@ final class DeleteStatementImpl extends StatementImpl implements DeleteStatement
       sql.append(table.toSql());
       if (whereCondition != null) {
         sql.append(" WHERE ");
-        whereCondition.toSql(sql);
+        whereCondition.toSql(sql, getDialect());
       }
       sql.append(";");
       prepareStatement(sql.toString());
@@ -65,7 +65,7 @@ final class DeleteStatementImpl extends StatementImpl implements DeleteStatement
         whereCondition.bind(statement, 1);
       }
       
-      statement.executeUpdate();
+      executeUpdate();
     } catch (SQLException e) {
       logger.log(Level.SEVERE, "Error executing statement", e);
     }
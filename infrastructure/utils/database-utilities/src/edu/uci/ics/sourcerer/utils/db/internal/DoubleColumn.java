@@ -23,21 +23,35 @@ import java.sql.Types;
 import java.text.DecimalFormat;
 
 import edu.uci.ics.sourcerer.util.Strings;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 class DoubleColumn extends ColumnImpl<Double> {
+  private int totalDigits;
+  private int decimalDigits;
   private DecimalFormat format;
   DoubleColumn(DatabaseTableImpl table, String name, boolean nullable) {
-    super(table, name, "FLOAT" + (nullable ? "" : " NOT NULL"), nullable, Types.FLOAT);
+    super(table, name, nullable, Types.FLOAT);
   }
   
   DoubleColumn(DatabaseTableImpl table, String name, int totalDigits, int decimalDigits, boolean nullable) {
-    super(table, name, "FLOAT(" + totalDigits + "," + decimalDigits+")" + (nullable ? "" : " NOT NULL"), nullable, Types.DOUBLE);
+    super(table, name, nullable, Types.DOUBLE);
+    this.totalDigits = totalDigits;
+    this.decimalDigits = decimalDigits;
     format = new DecimalFormat(Strings.create('#', totalDigits - decimalDigits) + "." + Strings.create('#', decimalDigits));
   }
 
+  @Override
+  protected String getTypeHelper(Dialect dialect) {
+    if (format == null) {
+      return dialect.getFloatType();
+    } else {
+      return dialect.getFloatType(totalDigits, decimalDigits);
+    }
+  }
+
   @Override
   protected void bindHelper(Double value, PreparedStatement statement, int index) throws SQLException {
     statement.setDouble(index, value.doubleValue());
@@ -21,29 +21,25 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 class EnumColumn<T extends Enum<T>> extends ColumnImpl<T> {
   private Class<T> klass;
+  private T[] values;
+  
   
   EnumColumn(DatabaseTableImpl table, String name, T[] values, boolean nullable) {
-    super(table, name, makeType(values, nullable), nullable, Types.INTEGER);
+    super(table, name, nullable, Types.INTEGER);
+    this.values = values;
     klass = values[0].getDeclaringClass();
   }
-
-  private static <T extends Enum<T>> String makeType(T[] values, boolean nullable) {
-    StringBuilder builder = new StringBuilder();
-    builder.append("ENUM(");
-		for (T value : values) {
-		  builder.append('\'').append(value.name()).append("',");
-		}
-    builder.setCharAt(builder.length() - 1, ')');
-    if (nullable) {
-      builder.append(" NOT NULL");
-    }
-    return builder.toString();
+  
+  @Override
+  protected String getTypeHelper(Dialect dialect) {
+    return dialect.getEnumType(values);
   }
   
   @Override
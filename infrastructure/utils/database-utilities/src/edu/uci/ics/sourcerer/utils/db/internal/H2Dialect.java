@@ -0,0 +1,146 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import edu.uci.ics.sourcerer.utils.db.Dialect;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class H2Dialect extends Dialect {
+  @Override
+  public String getDriver() {
+    return "org.h2.Driver";
+  }
+  
+  @Override
+  public String getSerialType() {
+    return "BIGINT AUTO_INCREMENT PRIMARY KEY";
+  }
+  
+  @Override
+  public String getIntType(boolean unsigned) {
+    return "INT";
+  }
+  
+  @Override
+  public String getBigIntType(boolean unsigned) {
+    return "BIGINT";
+  }
+  
+  @Override
+  public String getFloatType() {
+    return "REAL";
+  }
+  
+  @Override
+  public String getFloatType(int totalDigits, int decimalDigits) {
+    return "DOUBLE";
+  }
+  
+  @Override
+  public String getBooleanType() {
+    return "BOOLEAN";
+  }
+  
+  @Override
+  public String getVarcharType(int size) {
+    return "VARCHAR(" + size + ")";
+  }
+  
+  @Override
+  public String getEnumType(Enum<?>[] values) {
+    return "ENUM" + makeValueList(values);
+  }
+  
+  @Override
+  public String getSetType(Enum<?>[] values) {
+    // Sets are stored as their bit mask
+    return "INT";
+  }
+  
+  @Override
+  public boolean hasInlineIndexes() {
+    return false;
+  }
+  
+  @Override
+  public String getIndex(Column<?> column, int prefixLength) {
+    String table = column.getTable().toSql();
+    return "CREATE INDEX " + table + "_" + column.getName() + " ON " + table + "(" + column.getName() + ")";
+  }
+  
+  @Override
+  public String getBitAnd(String left, String right) {
+    return "BITAND(" + left + "," + right + ")";
+  }
+  
+  @Override
+  public String getLoadFile(File file, DatabaseTable table) {
+    return null;
+  }
+  
+  @Override
+  public String translateValues(String values) {
+    // Rewrite the MySQL backslash escapes into standard quote doubling
+    if (values.indexOf('\\') == -1) {
+      return values;
+    } else {
+      StringBuilder builder = new StringBuilder(values.length());
+      boolean quoted = false;
+      for (int i = 0, max = values.length(); i < max; i++) {
+        char c = values.charAt(i);
+        if (quoted && c == '\\' && i + 1 < max) {
+          char next = values.charAt(++i);
+          if (next == '\'') {
+            builder.append("''");
+          } else {
+            builder.append(next);
+          }
+        } else {
+          if (c == '\'') {
+            quoted = !quoted;
+          }
+          builder.append(c);
+        }
+      }
+      return builder.toString();
+    }
+  }
+  
+  @Override
+  public int getStreamedFetchSize() {
+    return 1000;
+  }
+  
+  @Override
+  public String getString(ResultSet result, int index) throws SQLException {
+    return result.getString(index);
+  }
+  
+  @Override
+  public boolean supportsTableLocks() {
+    return false;
+  }
+}
@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.utils.db.internal;
 import java.util.Collection;
 
 import edu.uci.ics.sourcerer.util.ArrayUtils;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.InConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
 import edu.uci.ics.sourcerer.utils.db.sql.Table;
@@ -59,7 +60,7 @@ class InConstantConditionImpl<T> extends ConditionImpl implements InConstantCond
   }
   
   @Override
-  public void toSql(StringBuilder builder) {
+  public void toSql(StringBuilder builder, Dialect dialect) {
     sel.toSql(builder);
     switch (type) {
       case IN: builder.append(" IN ("); break;
@@ -2,8 +2,10 @@ package edu.uci.ics.sourcerer.utils.db.internal;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -11,13 +13,18 @@ import java.util.logging.Level;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 
 class InFileInserter implements BatchInserter {
+  private static final int BATCH_SIZE = 500;
+  
   private File tempFile;
   private BufferedWriter writer;
   private QueryExecutorImpl executor;
   private DatabaseTable table;
+  private int rows;
+  private long bytes;
   
   private InFileInserter() {}
   
@@ -43,8 +50,11 @@ class InFileInserter implements BatchInserter {
       throw new IllegalStateException("Inserter already used");
     }
     try {
-      writer.write(insert.toString());
+      String value = insert.toString();
+      writer.write(value);
       writer.write('\n');
+      rows++;
+      bytes += value.length() + 1;
     } catch (IOException e) {
       logger.log(Level.SEVERE, "Error writing to file: " + tempFile.getPath(), e);
     }
@@ -54,12 +64,44 @@ class InFileInserter implements BatchInserter {
   public void insert() {
     IOUtils.close(writer);
     writer = null;
-    executor.execute("LOAD DATA CONCURRENT LOCAL INFILE '" + tempFile.getPath().replace('\\', '/') + "' " +
-    		"INTO TABLE " + table.getName() + " " +
-				"FIELDS TERMINATED BY ',' " +
-				"OPTIONALLY ENCLOSED BY '\\\'' " + 
-				"LINES STARTING BY '(' " +
-				"TERMINATED BY ')\n'");
+    long start = System.nanoTime();
+    Dialect dialect = executor.getDialect();
+    String load = dialect.getLoadFile(tempFile, table);
+    if (load == null) {
+      insertBatches(dialect);
+    } else {
+      executor.execute(load);
+    }
     tempFile.delete();
+    executor.recordInsert(table.getName(), rows, bytes, start);
+  }
+  
+  private void insertBatches(Dialect dialect) {
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new FileReader(tempFile));
+      StringBuilder sql = null;
+      int count = 0;
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (sql == null) {
+          sql = new StringBuilder("INSERT INTO ").append(table.getName()).append(" VALUES ");
+        } else {
+          sql.append(',');
+        }
+        sql.append(dialect.translateValues(line));
+        if (++count == BATCH_SIZE) {
+          executor.executeUpdate(sql.toString());
+          sql = null;
+          count = 0;
+        }
+      }
+      if (sql != null) {
+        executor.executeUpdate(sql.toString());
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error reading from file: " + tempFile.getPath(), e);
+    } finally {
+      IOUtils.close(reader);
+    }
   }
 }
@@ -20,18 +20,40 @@ package edu.uci.ics.sourcerer.utils.db.internal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
+
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 class IntegerColumn extends ColumnImpl<Integer> {
+  private String type;
   private boolean unsigned;
   
   IntegerColumn(DatabaseTableImpl table, String name, String type, boolean nullable, boolean unsigned, int sqlType) {
-    super(table, name, type + ("SERIAL".equals(type) ? "" : ((unsigned ? " UNSIGNED" : "") + (nullable ? "" : " NOT NULL"))), nullable, sqlType);
+    super(table, name, nullable, sqlType);
+    this.type = type;
     this.unsigned = unsigned;
   }
   
+  @Override
+  public String getType(Dialect dialect) {
+    if ("SERIAL".equals(type)) {
+      return dialect.getSerialType();
+    } else {
+      return super.getType(dialect);
+    }
+  }
+  
+  @Override
+  protected String getTypeHelper(Dialect dialect) {
+    if ("BIGINT".equals(type)) {
+      return dialect.getBigIntType(unsigned);
+    } else {
+      return dialect.getIntType(unsigned);
+    }
+  }
+  
   @Override
   protected void bindHelper(Integer value, PreparedStatement statement, int index) throws SQLException {
     if (unsigned && value < 0) {
@@ -17,10 +17,7 @@
  */
 package edu.uci.ics.sourcerer.utils.db.internal;
 
-import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
-
-import java.util.logging.Level;
-
+import edu.uci.ics.sourcerer.utils.db.AsyncQueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
 
@@ -28,16 +25,13 @@ import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class InternalDatabaseConnectionFactory extends DatabaseConnectionFactory {
-  public InternalDatabaseConnectionFactory() {
-    try {
-      Class.forName("com.mysql.jdbc.Driver");
-    } catch (ClassNotFoundException e) {
-      logger.log(Level.SEVERE, "Exception registering driver", e);
-    }
-  }
-  
   @Override
   public DatabaseConnection create() {
     return new DatabaseConnectionImpl();
   }
+  
+  @Override
+  public AsyncQueryExecutor createAsyncExecutor(int poolSize) {
+    return new AsyncQueryExecutorImpl(poolSize);
+  }
 }
@@ -0,0 +1,144 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.utils.db.Dialect;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class MySqlDialect extends Dialect {
+  @Override
+  public String getDriver() {
+    return "com.mysql.jdbc.Driver";
+  }
+  
+  @Override
+  public String getSerialType() {
+    return "SERIAL";
+  }
+  
+  @Override
+  public String getIntType(boolean unsigned) {
+    return unsigned ? "INT UNSIGNED" : "INT";
+  }
+  
+  @Override
+  public String getBigIntType(boolean unsigned) {
+    return unsigned ? "BIGINT UNSIGNED" : "BIGINT";
+  }
+  
+  @Override
+  public String getFloatType() {
+    return "FLOAT";
+  }
+  
+  @Override
+  public String getFloatType(int totalDigits, int decimalDigits) {
+    return "FLOAT(" + totalDigits + "," + decimalDigits + ")";
+  }
+  
+  @Override
+  public String getBooleanType() {
+    return "BOOLEAN";
+  }
+  
+  @Override
+  public String getVarcharType(int size) {
+    return "VARCHAR(" + size + ") BINARY";
+  }
+  
+  @Override
+  public String getEnumType(Enum<?>[] values) {
+    return "ENUM" + makeValueList(values);
+  }
+  
+  @Override
+  public String getSetType(Enum<?>[] values) {
+    return "SET" + makeValueList(values);
+  }
+  
+  @Override
+  public boolean hasInlineIndexes() {
+    return true;
+  }
+  
+  @Override
+  public String getIndex(Column<?> column, int prefixLength) {
+    if (prefixLength == 0) {
+      return "INDEX(" + column.getName() + ")";
+    } else {
+      return "INDEX(" + column.getName() + "(" + prefixLength + "))";
+    }
+  }
+  
+  @Override
+  public String getBitAnd(String left, String right) {
+    return "(" + left + "&" + right + ")";
+  }
+  
+  @Override
+  public String getLoadFile(File file, DatabaseTable table) {
+    return "LOAD DATA CONCURRENT LOCAL INFILE '" + file.getPath().replace('\\', '/') + "' " +
+        "INTO TABLE " + table.getName() + " " +
+        "FIELDS TERMINATED BY ',' " +
+        "OPTIONALLY ENCLOSED BY '\\\'' " + 
+        "LINES STARTING BY '(' " +
+        "TERMINATED BY ')\n'";
+  }
+  
+  @Override
+  public String translateValues(String values) {
+    return values;
+  }
+  
+  @Override
+  public int getStreamedFetchSize() {
+    return Integer.MIN_VALUE;
+  }
+  
+  @Override
+  public String getString(ResultSet result, int index) throws SQLException {
+    byte[] bytes = result.getBytes(index);
+    if (bytes == null) {
+      return null;
+    } else {
+      try {
+        return new String(bytes, "UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        logger.log(Level.SEVERE, "Error decoding result.", e);
+        return null;
+      }
+    }
+  }
+  
+  @Override
+  public boolean supportsTableLocks() {
+    return true;
+  }
+}
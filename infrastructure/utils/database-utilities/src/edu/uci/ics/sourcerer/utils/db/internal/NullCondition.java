@@ -18,6 +18,7 @@
 package edu.uci.ics.sourcerer.utils.db.internal;
 
 import edu.uci.ics.sourcerer.util.ArrayUtils;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
 import edu.uci.ics.sourcerer.utils.db.sql.Table;
 
@@ -46,7 +47,7 @@ class NullCondition<T> extends ConditionImpl {
   }
   
   @Override
-  public void toSql(StringBuilder builder) {
+  public void toSql(StringBuilder builder, Dialect dialect) {
     sel.toSql(builder);
     switch (type) {
       case NULL: builder.append(" IS NULL"); break;
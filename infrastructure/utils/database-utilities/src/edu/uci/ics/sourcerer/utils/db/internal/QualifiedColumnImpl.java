@@ -79,6 +79,11 @@ final class QualifiedColumnImpl<T> implements QualifiedColumn<T> {
     return column.createConstantCondition(this, Type.NOT_EQUALS).setValue(value);
   }
   
+  @Override
+  public ConstantCondition<T> compareGreaterThan(T value) {
+    return column.createConstantCondition(this, Type.GREATER_THAN).setValue(value);
+  }
+  
   @Override
   public InConstantCondition<T> compareIn(Collection<T> values) {
     return new InConstantConditionImpl<T>(this, InConstantConditionImpl.Type.IN, values);
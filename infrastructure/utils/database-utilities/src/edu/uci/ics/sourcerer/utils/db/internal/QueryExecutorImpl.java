@@ -21,12 +21,21 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.File;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.InsertCounts;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.BatchInserter;
 import edu.uci.ics.sourcerer.utils.db.TableLocker;
@@ -42,17 +51,25 @@ import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
  * @author Joel Ossher (jossher@uci.edu)
  */
 class QueryExecutorImpl implements QueryExecutor {
+  private DatabaseConnectionImpl owner;
   private Connection connection;
+  private Dialect dialect;
   private java.sql.Statement statement;
   private TableLocker locker;
+  private QueryStatistics stats;
+  private long insertedRows;
+  private final InsertCounts insertCounts = new InsertCounts();
 
-  private QueryExecutorImpl(Connection connection) {
+  private QueryExecutorImpl(Connection connection, Dialect dialect) {
     this.connection = connection;
+    this.dialect = dialect;
   }
   
-  public static QueryExecutorImpl make(Connection connection) {
-    QueryExecutorImpl exec = new QueryExecutorImpl(connection);
+  public static QueryExecutorImpl make(DatabaseConnectionImpl owner, Connection connection, Dialect dialect) {
+    QueryExecutorImpl exec = new QueryExecutorImpl(connection, dialect);
     if (exec.reset()) {
+      exec.stats = QueryStatistics.create();
+      exec.owner = owner;
       return exec;
     } else {
       return null;
@@ -60,7 +77,7 @@ class QueryExecutorImpl implements QueryExecutor {
   }
   
   boolean reset() {
-    close();
+    closeStatement();
     try {
       statement = connection.createStatement();
       return true;
@@ -79,6 +96,18 @@ class QueryExecutorImpl implements QueryExecutor {
   
   @Override
   public void close() {
+    closeStatement();
+    if (stats != null) {
+      stats.close();
+      stats = null;
+    }
+    if (owner != null) {
+      owner.executorClosed(this);
+      owner = null;
+    }
+  }
+  
+  private void closeStatement() {
     try {
       if (statement != null) {
         statement.close();
@@ -89,6 +118,32 @@ class QueryExecutorImpl implements QueryExecutor {
     statement = null;
   }
   
+  long startTiming() {
+    return stats == null ? 0 : System.nanoTime();
+  }
+  
+  void recordTiming(String sql, long start, int rows) {
+    if (stats != null) {
+      stats.record(sql, start, rows);
+    }
+  }
+  
+  void recordInsert(String table, int rows, long bytes, long start) {
+    insertedRows += rows;
+    insertCounts.add(table, rows, bytes, System.nanoTime() - start);
+  }
+  
+  void recordRows(String sql, int rows) {
+    if (stats != null) {
+      stats.addRows(sql, rows);
+    }
+  }
+  
+  @Override
+  public Dialect getDialect() {
+    return dialect;
+  }
+  
   @Override
   public TableLocker getTableLocker() {
     if (locker == null) {
@@ -115,7 +170,9 @@ class QueryExecutorImpl implements QueryExecutor {
   public void executeUpdate(String sql) {
     verifyOpen();
     try {
-      statement.executeUpdate(sql);
+      long start = startTiming();
+      int rows = statement.executeUpdate(sql);
+      recordTiming(sql, start, rows);
     } catch (SQLException e) {
       logger.log(Level.SEVERE, "Error in update: " + sql, e);
     }
@@ -125,8 +182,9 @@ class QueryExecutorImpl implements QueryExecutor {
   public String executeUpdateWithKey(String sql) {
     verifyOpen();
     try {
-      statement.executeUpdate(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
-      ResultSet result = statement.getGeneratedKeys();
+      long start = startTiming();
+      ResultSet result = dialect.executeUpdateWithKeys(statement, sql);
+      recordTiming(sql, start, 1);
       if (result.next()) {
         return result.getString(1);
       } else {
@@ -144,8 +202,10 @@ class QueryExecutorImpl implements QueryExecutor {
   public QueryResult executeUpdateWithKeys(String sql) {
     verifyOpen();
     try {
-      statement.executeUpdate(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
-      return new QueryResultImpl(statement.getGeneratedKeys());
+      long start = startTiming();
+      ResultSet result = dialect.executeUpdateWithKeys(statement, sql);
+      recordTiming(sql, start, -1);
+      return new QueryResultImpl(result);
     } catch (SQLException e) {
       logger.log(Level.SEVERE, "Error in update", e);
       logger.log(Level.SEVERE, sql);
@@ -157,7 +217,9 @@ class QueryExecutorImpl implements QueryExecutor {
   public String executeSingle(String sql) {
     verifyOpen();
     try {
+      long start = startTiming();
       statement.execute(sql);
+      recordTiming(sql, start, 1);
       ResultSet result = statement.getResultSet();
       if (result.next()) {
         String retval = result.getString(1);
@@ -178,7 +240,9 @@ class QueryExecutorImpl implements QueryExecutor {
   public int exucuteSingleInt(String sql) {
     verifyOpen();
     try {
+      long start = startTiming();
       statement.execute(sql);
+      recordTiming(sql, start, 1);
       ResultSet result = statement.getResultSet();
       if (result.next()) {
         int retval = result.getInt(1);
@@ -199,7 +263,9 @@ class QueryExecutorImpl implements QueryExecutor {
   @Override
   public QueryResult execute(String sql) {
     try {
+      long start = startTiming();
       statement.execute(sql);
+      recordTiming(sql, start, -1);
       return new QueryResultImpl(statement.getResultSet());
     } catch (SQLException e) {
       logger.log(Level.SEVERE, "Error in execute", e);
@@ -209,18 +275,30 @@ class QueryExecutorImpl implements QueryExecutor {
   
   @Override
   public void createTable(DatabaseTable table) {
+    createTable(table, Collections.<Column<?>>emptySet());
+  }
+  
+  private void createTable(DatabaseTable table, Collection<? extends Column<?>> deferred) {
     StringBuilder sql = new StringBuilder("CREATE TABLE ");
     sql.append(table.getName()).append(" (");
     for (Column<?> column : table.getColumns()) {
-      sql.append(column.getName()).append(" ").append(column.getType()).append(',');
+      sql.append(column.getName()).append(" ").append(column.getType(dialect)).append(',');
     }
+    Collection<String> indexes = new ArrayList<>();
     for (Column<?> column : table.getColumns()) {
-      if (column.isIndexed()) {
-        sql.append(column.getIndex()).append(',');
+      if (column.isIndexed() && !deferred.contains(column)) {
+        if (dialect.hasInlineIndexes()) {
+          sql.append(column.getIndex(dialect)).append(',');
+        } else {
+          indexes.add(column.getIndex(dialect));
+        }
       }
     }
     sql.setCharAt(sql.length() - 1, ')');
     executeUpdate(sql.toString());
+    for (String index : indexes) {
+      executeUpdate(index);
+    }
   }
   
   @Override
@@ -230,6 +308,83 @@ class QueryExecutorImpl implements QueryExecutor {
     }
   }
   
+  @Override
+  public void createTablesDeferringIndexes(Collection<? extends Column<?>> deferred, DatabaseTable ... tables) {
+    for (DatabaseTable table : tables) {
+      createTable(table, deferred);
+    }
+  }
+  
+  @Override
+  public int addIndexes(DatabaseTable table) {
+    Set<String> existing = getIndexedColumns(table);
+    if (existing == null) {
+      return -1;
+    }
+    Collection<String> missing = new ArrayList<>();
+    Collection<String> indexes = new ArrayList<>();
+    for (Column<?> column : table.getColumns()) {
+      if (column.isIndexed() && !existing.contains(column.getName().toLowerCase())) {
+        missing.add(column.getName().toLowerCase());
+        indexes.add(column.getIndex(dialect));
+      }
+    }
+    if (indexes.isEmpty()) {
+      return 0;
+    } else if (dialect.hasInlineIndexes()) {
+      // Build every missing index in a single pass over the table
+      StringBuilder sql = new StringBuilder("ALTER TABLE ");
+      sql.append(table.getName());
+      for (String index : indexes) {
+        sql.append(" ADD ").append(index).append(',');
+      }
+      sql.setLength(sql.length() - 1);
+      executeUpdate(sql.toString());
+    } else {
+      for (String index : indexes) {
+        executeUpdate(index);
+      }
+    }
+    // Failed statements are only logged, so see which indexes actually exist now
+    existing = getIndexedColumns(table);
+    if (existing == null) {
+      return -1;
+    }
+    int added = 0;
+    for (String column : missing) {
+      if (existing.contains(column)) {
+        added++;
+      } else {
+        logger.log(Level.SEVERE, "Unable to index " + table.getName() + "." + column);
+      }
+    }
+    return added;
+  }
+  
+  private Set<String> getIndexedColumns(DatabaseTable table) {
+    Set<String> columns = new HashSet<>();
+    try {
+      DatabaseMetaData meta = connection.getMetaData();
+      for (String name : new String[] { table.getName(), table.getName().toUpperCase() }) {
+        try (ResultSet result = meta.getIndexInfo(null, null, name, false, true)) {
+          while (result.next()) {
+            String column = result.getString("COLUMN_NAME");
+            if (column != null) {
+              columns.add(column.toLowerCase());
+            }
+          }
+        }
+        if (!columns.isEmpty()) {
+          break;
+        }
+      }
+      return columns;
+    } catch (SQLException e) {
+      logger.log(Level.SEVERE, "Unable to read indexes for " + table.getName(), e);
+      return null;
+    }
+  }
+  
   @Override
   public void dropTables(DatabaseTable ... tables) {
     StringBuilder sql = new StringBuilder("DROP TABLE IF EXISTS ");
@@ -243,15 +398,78 @@ class QueryExecutorImpl implements QueryExecutor {
   @Override
   public void insert(Insert insert) {
     StringBuilder sql = new StringBuilder("INSERT INTO ");
-    sql.append(insert.getTable().toSql()).append(" VALUES").append(insert.toString());
+    sql.append(insert.getTable().toSql()).append(" VALUES").append(dialect.translateValues(insert.toString()));
+    long start = System.nanoTime();
     executeUpdate(sql.toString());
+    recordInsert(insert.getTable().toSql(), 1, sql.length(), start);
   }
   
   @Override
   public Integer insertWithKey(Insert insert) {
     StringBuilder sql = new StringBuilder("INSERT INTO ");
-    sql.append(insert.getTable().toSql()).append(" VALUES").append(insert.toString());
-    return Integer.valueOf(executeUpdateWithKey(sql.toString()));
+    sql.append(insert.getTable().toSql()).append(" VALUES").append(dialect.translateValues(insert.toString()));
+    long start = System.nanoTime();
+    String key = executeUpdateWithKey(sql.toString());
+    if (key == null) {
+      return null;
+    } else {
+      recordInsert(insert.getTable().toSql(), 1, sql.length(), start);
+      return Integer.valueOf(key);
+    }
+  }
+  
+  @Override
+  public long getInsertedRows() {
+    return insertedRows;
+  }
+  
+  @Override
+  public InsertCounts getInsertCounts() {
+    return insertCounts;
+  }
+  
+  @Override
+  public List<Integer> insertWithKeys(List<? extends Insert> inserts) {
+    if (inserts.isEmpty()) {
+      return Collections.emptyList();
+    } else if (inserts.size() == 1) {
+      Integer key = insertWithKey(inserts.get(0));
+      return key == null ? null : Collections.singletonList(key);
+    }
+    verifyOpen();
+    StringBuilder sql = new StringBuilder("INSERT INTO ");
+    sql.append(inserts.get(0).getTable().toSql()).append(" VALUES");
+    boolean first = true;
+    for (Insert insert : inserts) {
+      if (first) {
+        first = false;
+      } else {
+        sql.append(',');
+      }
+      sql.append(dialect.translateValues(insert.toString()));
+    }
+    List<Integer> keys = new ArrayList<>(inserts.size());
+    long insertStart = System.nanoTime();
+    try {
+      long start = startTiming();
+      ResultSet result = dialect.executeUpdateWithKeys(statement, sql.toString());
+      recordTiming(sql.toString(), start, inserts.size());
+      while (result.next()) {
+        keys.add(result.getInt(1));
+      }
+    } catch (SQLException e) {
+      logger.log(Level.SEVERE, "Error in update", e);
+      logger.log(Level.SEVERE, sql.toString());
+      return null;
+    }
+    recordInsert(inserts.get(0).getTable().toSql(), keys.size(), sql.length(), insertStart);
+    if (keys.size() == inserts.size()) {
+      return keys;
+    } else {
+      // The rows went in, but the keys can't be matched to them, so the caller has to look them up
+      logger.log(Level.SEVERE, "Expected " + inserts.size() + " keys but got " + keys.size() + ": " + sql);
+      return null;
+    }
   }
   
   @Override
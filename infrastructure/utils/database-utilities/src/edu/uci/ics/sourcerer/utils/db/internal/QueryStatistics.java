@@ -0,0 +1,211 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class QueryStatistics implements TaskProgressLogger.TaskListener {
+  private static final int BUCKETS = 20;
+  private static final Pattern VALUE_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+  private static final Pattern ROW_LIST = Pattern.compile("(\\([^()]*\\))(\\s*,\\s*\\([^()]*\\))+");
+  
+  private final TaskProgressLogger task;
+  private final int depth;
+  private final boolean summarize;
+  private final long slowThreshold;
+  private final Map<String, TemplateStatistics> templates;
+  
+  private QueryStatistics(TaskProgressLogger task, boolean summarize, long slowThreshold) {
+    this.task = task;
+    this.depth = task.getDepth();
+    this.summarize = summarize;
+    this.slowThreshold = slowThreshold;
+    templates = new HashMap<>();
+  }
+  
+  static QueryStatistics create() {
+    boolean summarize = DatabaseConnectionFactory.QUERY_STATISTICS.getValue();
+    int slowThreshold = DatabaseConnectionFactory.SLOW_QUERY_THRESHOLD.getValue();
+    if (summarize || slowThreshold > 0) {
+      QueryStatistics stats = new QueryStatistics(TaskProgressLogger.get(), summarize, slowThreshold * 1000000l);
+      if (summarize) {
+        stats.task.addListener(stats);
+      }
+      return stats;
+    } else {
+      return null;
+    }
+  }
+  
+  synchronized void record(String sql, long start, int rows) {
+    long elapsed = System.nanoTime() - start;
+    if (slowThreshold > 0 && elapsed >= slowThreshold) {
+      logger.log(Level.WARNING, "Slow query (" + (elapsed / 1000000) + " ms) from " + findCaller() + ": " + sql);
+    }
+    if (summarize) {
+      String template = makeTemplate(sql);
+      TemplateStatistics stats = templates.get(template);
+      if (stats == null) {
+        stats = new TemplateStatistics(template);
+        templates.put(template, stats);
+      }
+      stats.record(elapsed, rows);
+    }
+  }
+  
+  synchronized void addRows(String sql, int rows) {
+    if (summarize) {
+      TemplateStatistics stats = templates.get(makeTemplate(sql));
+      if (stats != null) {
+        stats.rows += rows;
+      }
+    }
+  }
+  
+  private static String findCaller() {
+    for (StackTraceElement element : new Throwable().getStackTrace()) {
+      if (!element.getClassName().startsWith("edu.uci.ics.sourcerer.utils.db.")) {
+        return element.toString();
+      }
+    }
+    return "unknown";
+  }
+  
+  static String makeTemplate(String sql) {
+    StringBuilder builder = new StringBuilder(Math.min(sql.length(), 256));
+    for (int i = 0, max = sql.length(); i < max; i++) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        // Skip over the string literal
+        for (i++; i < max; i++) {
+          c = sql.charAt(i);
+          if (c == '\\') {
+            i++;
+          } else if (c == '\'') {
+            if (i + 1 < max && sql.charAt(i + 1) == '\'') {
+              i++;
+            } else {
+              break;
+            }
+          }
+        }
+        builder.append('?');
+      } else if (Character.isDigit(c) && (builder.length() == 0 || !Character.isJavaIdentifierPart(builder.charAt(builder.length() - 1)))) {
+        while (i + 1 < max && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+          i++;
+        }
+        builder.append('?');
+      } else {
+        builder.append(c);
+      }
+    }
+    String template = VALUE_LIST.matcher(builder).replaceAll("?...");
+    return ROW_LIST.matcher(template).replaceAll("$1,...");
+  }
+  
+  @Override
+  public void taskFinished(TaskProgressLogger task, int depth) {
+    if (depth == this.depth) {
+      report();
+    }
+  }
+  
+  synchronized void report() {
+    if (templates.isEmpty()) {
+      return;
+    }
+    List<TemplateStatistics> sorted = new ArrayList<>(templates.values());
+    Collections.sort(sorted, new Comparator<TemplateStatistics>() {
+      @Override
+      public int compare(TemplateStatistics o1, TemplateStatistics o2) {
+        return Long.compare(o2.total, o1.total);
+      }
+    });
+    templates.clear();
+    task.report("Statistics for " + sorted.size() + " query templates:");
+    for (TemplateStatistics stats : sorted) {
+      task.report("  " + stats.toString());
+    }
+  }
+  
+  void close() {
+    if (summarize) {
+      task.removeListener(this);
+      report();
+    }
+  }
+  
+  private static class TemplateStatistics {
+    private final String template;
+    private final int[] histogram;
+    private int count;
+    private long rows;
+    private long total;
+    private long max;
+    
+    TemplateStatistics(String template) {
+      this.template = template;
+      histogram = new int[BUCKETS];
+    }
+    
+    void record(long elapsed, int rows) {
+      count++;
+      if (rows > 0) {
+        this.rows += rows;
+      }
+      total += elapsed;
+      max = Math.max(max, elapsed);
+      // Bucket i holds times below 2^i ms
+      long millis = elapsed / 1000000;
+      int bucket = 64 - Long.numberOfLeadingZeros(millis);
+      histogram[Math.min(bucket, BUCKETS - 1)]++;
+    }
+    
+    private long getPercentile(double percentile) {
+      int target = (int) Math.ceil(count * percentile);
+      int seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += histogram[i];
+        if (seen >= target) {
+          return 1l << i;
+        }
+      }
+      return 1l << BUCKETS;
+    }
+    
+    @Override
+    public String toString() {
+      return count + " executions, " + rows + " rows, " + (total / 1000000) + " ms total, " + (total / count / 1000) + " us avg, p50 < " + getPercentile(.5) + " ms, p95 < " + getPercentile(.95) + " ms, max " + (max / 1000000) + " ms: " + template;
+    }
+  }
+}
@@ -19,7 +19,6 @@ package edu.uci.ics.sourcerer.utils.db.internal;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
-import java.io.UnsupportedEncodingException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -37,6 +36,7 @@ import edu.uci.ics.sourcerer.util.ArrayUtils;
 import edu.uci.ics.sourcerer.util.Pair;
 import edu.uci.ics.sourcerer.utils.db.sql.ComparisonCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Condition;
+import edu.uci.ics.sourcerer.utils.db.sql.IntPairs;
 import edu.uci.ics.sourcerer.utils.db.sql.ResultConstructor;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
@@ -49,6 +49,7 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 class SelectQueryImpl implements SelectQuery {
   private QueryExecutorImpl executor;
   protected PreparedStatement statement;
+  private String preparedSql;
   
   private Table[] tables;
   private ComparisonCondition[] joinConditions;
@@ -241,13 +242,13 @@ class SelectQueryImpl implements SelectQuery {
           } else {
             rest = true;
           }
-          cond.toSql(sql);
+          cond.toSql(sql, executor.getDialect());
         }
       }
       
       if (whereCondition != null) {
         sql.append(" WHERE ");
-        whereCondition.toSql(sql);
+        whereCondition.toSql(sql, executor.getDialect());
       }
       
       if (!orderBy.isEmpty()) {
@@ -268,7 +269,8 @@ class SelectQueryImpl implements SelectQuery {
         sql.append(" LIMIT ").append(limit);
       }
       sql.append(";");
-      statement = executor.prepareStatement(sql.toString());
+      preparedSql = sql.toString();
+      statement = executor.prepareStatement(preparedSql);
     }
     
     try {
@@ -276,11 +278,13 @@ class SelectQueryImpl implements SelectQuery {
         whereCondition.bind(statement, 1);
       }
       if (streamed) {
-        statement.setFetchSize(Integer.MIN_VALUE);
+        statement.setFetchSize(executor.getDialect().getStreamedFetchSize());
       } else {
         statement.setFetchSize(10);
       }
+      long start = executor.startTiming();
       statement.execute();
+      executor.recordTiming(preparedSql, start, -1);
       return statement.getResultSet();
     } catch (SQLException e) {
       logger.log(Level.SEVERE, "Error executing statement", e);
@@ -298,8 +302,55 @@ class SelectQueryImpl implements SelectQuery {
     return new QueryResult(execute(true));
   }
   
+  private int getSelectIndex(Selectable<?> selectable) {
+    Integer index = selects.get(selectable);
+    if (index == null) {
+      throw new IllegalArgumentException("Column not in select: " + selectable);
+    } else {
+      return index.intValue();
+    }
+  }
+  
+  @Override
+  public IntPairs selectIntPairs(Selectable<Integer> first, Selectable<Integer> second) {
+    if (count) {
+      throw new IllegalStateException("Count enabled.");
+    }
+    int firstIndex = getSelectIndex(first);
+    int secondIndex = getSelectIndex(second);
+    IntPairs pairs = new IntPairs();
+    ResultSet result = execute(true);
+    if (result != null) {
+      try {
+        while (result.next()) {
+          int a = result.getInt(firstIndex);
+          if (result.wasNull()) {
+            continue;
+          }
+          int b = result.getInt(secondIndex);
+          if (result.wasNull()) {
+            continue;
+          }
+          pairs.add(a, b);
+        }
+        executor.recordRows(preparedSql, pairs.size());
+      } catch (SQLException e) {
+        logger.log(Level.SEVERE, "Error reading results.", e);
+      } finally {
+        try {
+          result.close();
+        } catch (SQLException e) {
+          logger.log(Level.SEVERE, "Error closing result.", e);
+        }
+      }
+    }
+    return pairs;
+  }
+  
   private class QueryResult implements TypedQueryResult {
     private ResultSet result = null;
+    private boolean wasNull = false;
+    private int rows = 0;
     
     QueryResult(ResultSet result) {
       this.result = result;
@@ -312,9 +363,12 @@ class SelectQueryImpl implements SelectQuery {
       } else {
         try {
           boolean val = result.next();
-          if (!val) {
+          if (val) {
+            rows++;
+          } else {
             result.close();
             result = null;
+            executor.recordRows(preparedSql, rows);
           }
           return val;
         } catch (SQLException e) {
@@ -356,26 +410,62 @@ class SelectQueryImpl implements SelectQuery {
         throw new IllegalStateException("Count enabled.");
       } else {
         if (result != null) {
-          Integer index = selects.get(selectable);
-          if (index == null) {
-            throw new IllegalArgumentException("Column not in select: " + selectable);
-          } else {
-            try {
-              byte[] bytes = result.getBytes(index);
-              if (bytes == null) {
-                return selectable.from(null);
-              } else {
-                return selectable.from(new String(bytes, "UTF-8"));
-              }
-            } catch (SQLException | UnsupportedEncodingException e) {
-              logger.log(Level.SEVERE, "Error getting result.", e);
-            }
+          int index = getSelectIndex(selectable);
+          try {
+            return selectable.from(executor.getDialect().getString(result, index));
+          } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error getting result.", e);
           }
         }
         return null;
       }
     }
     
+    @Override
+    public int getInt(Selectable<? extends Number> selectable) {
+      if (SelectQueryImpl.this.count) {
+        throw new IllegalStateException("Count enabled.");
+      } else {
+        if (result != null) {
+          int index = getSelectIndex(selectable);
+          try {
+            int value = result.getInt(index);
+            wasNull = result.wasNull();
+            return value;
+          } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error getting result.", e);
+          }
+        }
+        wasNull = true;
+        return 0;
+      }
+    }
+    
+    @Override
+    public long getLong(Selectable<? extends Number> selectable) {
+      if (SelectQueryImpl.this.count) {
+        throw new IllegalStateException("Count enabled.");
+      } else {
+        if (result != null) {
+          int index = getSelectIndex(selectable);
+          try {
+            long value = result.getLong(index);
+            wasNull = result.wasNull();
+            return value;
+          } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error getting result.", e);
+          }
+        }
+        wasNull = true;
+        return 0;
+      }
+    }
+    
+    @Override
+    public boolean wasNull() {
+      return wasNull;
+    }
+    
     @Override
     public <T> Collection<T> toCollection(Selectable<T> selectable) {
       Collection<T> collection = new ArrayList<>();
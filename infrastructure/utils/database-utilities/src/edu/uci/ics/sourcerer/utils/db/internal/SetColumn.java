@@ -23,6 +23,7 @@ import java.sql.Types;
 
 import edu.uci.ics.sourcerer.util.BitEnumSet;
 import edu.uci.ics.sourcerer.util.BitEnumSetFactory;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.internal.ConstantConditionImpl.Type;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
@@ -31,24 +32,18 @@ import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
  * @author Joel Ossher (jossher@uci.edu)
  */
 class SetColumn<T extends Enum<T>, S extends BitEnumSet<T>> extends ColumnImpl<S> {
+  private T[] values;
   private BitEnumSetFactory<T, S> factory;
   
   SetColumn(DatabaseTableImpl table, String name, T[] values, BitEnumSetFactory<T, S> factory, boolean nullable) {
-    super(table, name, makeType(values, nullable), nullable, Types.INTEGER);
+    super(table, name, nullable, Types.INTEGER);
+    this.values = values;
     this.factory = factory;
   }
   
-  private static <T extends Enum<T>> String makeType(T[] values, boolean nullable) {
-    StringBuilder builder = new StringBuilder();
-    builder.append("SET(");
-    for (Enum<T> value : values) {
-      builder.append("'").append(value.name()).append("'").append(",");
-    }
-    builder.setCharAt(builder.length() - 1, ')');
-    if (!nullable) {
-      builder.append(" NOT NULL");
-    }
-    return builder.toString();
+  @Override
+  protected String getTypeHelper(Dialect dialect) {
+    return dialect.getSetType(values);
   }
   
   @Override
@@ -58,12 +53,7 @@ class SetColumn<T extends Enum<T>, S extends BitEnumSet<T>> extends ColumnImpl<S
   
   @Override
   protected void bindHelper(S value, PreparedStatement statement, int index) throws SQLException {
-    StringBuilder builder = new StringBuilder('\'');
-    for (T val : value) {
-      builder.append(val.name()).append(',');
-    }
-    builder.setCharAt(builder.length() - 1, '\'');
-    statement.setString(index, builder.toString());
+    statement.setInt(index, value.getValue());
   }
   
   @Override
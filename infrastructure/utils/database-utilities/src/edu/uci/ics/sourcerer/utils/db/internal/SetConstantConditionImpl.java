@@ -21,6 +21,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import edu.uci.ics.sourcerer.util.BitEnumSet;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.Selectable;
 
@@ -47,21 +48,22 @@ public class SetConstantConditionImpl<T extends Enum<T>, S extends BitEnumSet<T>
     if (value.size() > 1) {
       return super.bind(statement, index);
     } else {
-      statement.setString(index, value.iterator().next().name());
+      statement.setInt(index, value.getValue());
       return index + 1;
     }
   }
   
   @Override
-  public void toSql(StringBuilder builder) {
+  public void toSql(StringBuilder builder, Dialect dialect) {
     if (value.size() > 1) {
-      super.toSql(builder);
+      super.toSql(builder, dialect);
     } else {
-      builder.append("FIND_IN_SET(?,");
-      sel.toSql(builder);
-      builder.append(")");
+      // Test the single member against the set's bit mask
+      StringBuilder set = new StringBuilder();
+      sel.toSql(set);
+      builder.append(dialect.getBitAnd(set.toString(), "?"));
       switch (type) {
-        case EQUALS: builder.append(">0"); break;
+        case EQUALS: builder.append("<>0"); break;
         case NOT_EQUALS: builder.append("=0"); break;
         default: throw new IllegalStateException("Invalid type: " + type);
       }
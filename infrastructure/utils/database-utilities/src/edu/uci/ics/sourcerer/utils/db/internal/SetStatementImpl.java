@@ -90,7 +90,7 @@ final class SetStatementImpl extends StatementImpl implements SetStatement {
       if (whereCondition != null) {
         sql.append(" WHERE ");
         comma = false;
-        whereCondition.toSql(sql);
+        whereCondition.toSql(sql, getDialect());
       }
       sql.append(";");
       prepareStatement(sql.toString());
@@ -104,7 +104,7 @@ final class SetStatementImpl extends StatementImpl implements SetStatement {
         whereCondition.bind(statement, i);
       }
       
-      statement.executeUpdate();
+      executeUpdate();
     } catch (SQLException e) {
       logger.log(Level.SEVERE, "Error executing statement", e);
     }
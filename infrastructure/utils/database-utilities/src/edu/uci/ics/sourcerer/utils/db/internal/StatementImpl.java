@@ -23,6 +23,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.logging.Level;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.sql.Statement;
 
 /**
@@ -31,15 +32,28 @@ import edu.uci.ics.sourcerer.utils.db.sql.Statement;
 abstract class StatementImpl implements Statement {
   private QueryExecutorImpl executor;
   protected PreparedStatement statement;
+  private String sql;
   
   StatementImpl(QueryExecutorImpl executor) {
     this.executor = executor;
   }
   
   protected void prepareStatement(String sql) {
+    this.sql = sql;
     statement = executor.prepareStatement(sql);
   }
   
+  protected Dialect getDialect() {
+    return executor.getDialect();
+  }
+  
+  protected int executeUpdate() throws SQLException {
+    long start = executor.startTiming();
+    int rows = statement.executeUpdate();
+    executor.recordTiming(sql, start, rows);
+    return rows;
+  }
+  
   @Override
   public void close() {
     if (statement != null) {
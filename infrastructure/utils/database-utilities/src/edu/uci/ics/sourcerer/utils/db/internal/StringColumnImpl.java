@@ -23,6 +23,7 @@ import java.sql.Types;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 import edu.uci.ics.sourcerer.utils.db.internal.ConstantConditionImpl.Type;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.StringColumn;
@@ -35,10 +36,15 @@ class StringColumnImpl extends ColumnImpl<String> implements StringColumn {
   private int indexedCharCount;
   
   StringColumnImpl(DatabaseTableImpl table, String name, int size, boolean nullable) {
-    super(table, name, "VARCHAR(" + size + ") BINARY" + (nullable ? "" : " NOT NULL"), nullable, Types.VARCHAR);
+    super(table, name, nullable, Types.VARCHAR);
     maxSize = size;
   }
 
+  @Override
+  protected String getTypeHelper(Dialect dialect) {
+    return dialect.getVarcharType(maxSize);
+  }
+  
   @Override
   public ConstantCondition<String> compareLike() {
     return new ConstantConditionImpl<>(this, Type.LIKE);
@@ -83,13 +89,9 @@ class StringColumnImpl extends ColumnImpl<String> implements StringColumn {
   }
   
   @Override
-  public String getIndex() {
+  public String getIndex(Dialect dialect) {
     if (isIndexed()) {
-      if (indexedCharCount == 0) {
-        return super.getIndex();
-      } else {
-        return "INDEX(" + getName() + "(" + indexedCharCount + "))";
-      }
+      return dialect.getIndex(this, indexedCharCount);
     } else {
       throw new IllegalArgumentException(getName() + " is not indexed");
     }
@@ -51,14 +51,18 @@ class TableLockerImpl implements TableLocker {
       throw new IllegalStateException("Cannot lock when already locked");
     } else {
       tables.setCharAt(tables.length() - 1, ';');
-      executor.execute(tables.toString());
+      if (executor.getDialect().supportsTableLocks()) {
+        executor.execute(tables.toString());
+      }
       locked = true;
     }
   }
   
   public void unlock() {
     if (locked) {
-      executor.execute("UNLOCK TABLES;");
+      if (executor.getDialect().supportsTableLocks()) {
+        executor.execute("UNLOCK TABLES;");
+      }
       reset();
     } else {
       throw new IllegalStateException("Cannot unlock when not locked");
@@ -17,19 +17,18 @@
  */
 package edu.uci.ics.sourcerer.utils.db.sql;
 
-
-
+import edu.uci.ics.sourcerer.utils.db.Dialect;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public interface Column<T> extends Selectable<T> {
   public String getName();
-  public String getType();
+  public String getType(Dialect dialect);
   
   public Column<T> addIndex();
   public boolean isIndexed();
-  public String getIndex();
+  public String getIndex(Dialect dialect);
   
   public boolean isNullable();
   
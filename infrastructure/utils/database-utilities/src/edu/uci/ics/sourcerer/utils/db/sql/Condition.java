@@ -20,6 +20,8 @@ package edu.uci.ics.sourcerer.utils.db.sql;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+import edu.uci.ics.sourcerer.utils.db.Dialect;
+
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
@@ -32,5 +34,5 @@ public interface Condition {
   
   public int bind(PreparedStatement statement, int index) throws SQLException;
   
-  public void toSql(StringBuilder builder);
+  public void toSql(StringBuilder builder, Dialect dialect);
 }
@@ -0,0 +1,61 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.sql;
+
+import java.util.Arrays;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class IntPairs {
+  private int[] first;
+  private int[] second;
+  private int size;
+  
+  public IntPairs() {
+    first = new int[64];
+    second = new int[64];
+  }
+  
+  public void add(int a, int b) {
+    if (size == first.length) {
+      first = Arrays.copyOf(first, size * 2);
+      second = Arrays.copyOf(second, size * 2);
+    }
+    first[size] = a;
+    second[size++] = b;
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public int getFirst(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException(index + " >= " + size);
+    }
+    return first[index];
+  }
+  
+  public int getSecond(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException(index + " >= " + size);
+    }
+    return second[index];
+  }
+}
@@ -33,4 +33,5 @@ public interface SelectQuery extends Query {
   
   public TypedQueryResult select();
   public TypedQueryResult selectStreamed();
+  public IntPairs selectIntPairs(Selectable<Integer> first, Selectable<Integer> second);
 }
@@ -32,6 +32,7 @@ public interface Selectable<T> {
   public ConstantCondition<T> compareEquals(T value);
   public ConstantCondition<T> compareNotEquals();
   public ConstantCondition<T> compareNotEquals(T value);
+  public ConstantCondition<T> compareGreaterThan(T value);
   public InConstantCondition<T> compareIn(Collection<T> values);
   public InConstantCondition<T> compareNotIn(Collection<T> values);
   public Condition compareNull();
@@ -28,6 +28,9 @@ public interface TypedQueryResult extends Closeable {
   public int getCount();
   public int toCount();
   public <T> T getResult(Selectable<T> selectable);
+  public int getInt(Selectable<? extends Number> selectable);
+  public long getLong(Selectable<? extends Number> selectable);
+  public boolean wasNull();
   public <T> Collection<T> toCollection(Selectable<T> selectable);
   public <T> Collection<T> toCollection(ResultConstructor<T> constructor);
   public <T> Iterable<T> toIterable(Selectable<T> selectable);
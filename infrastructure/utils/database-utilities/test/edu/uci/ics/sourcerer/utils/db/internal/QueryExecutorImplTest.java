@@ -0,0 +1,140 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.QualifiedTable;
+import edu.uci.ics.sourcerer.utils.db.sql.Table;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class QueryExecutorImplTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(
+      DatabaseConnectionFactory.QUERY_STATISTICS,
+      DatabaseConnectionFactory.SLOW_QUERY_THRESHOLD);
+  
+  private static final Table TABLE = new Table() {
+    @Override
+    public String toSql() {
+      return "entities";
+    }
+    
+    @Override
+    public QualifiedTable qualify(String qualifier) {
+      return null;
+    }
+  };
+  
+  private static final Insert INSERT = new Insert() {
+    @Override
+    public Table getTable() {
+      return TABLE;
+    }
+    
+    @Override
+    public String toString() {
+      return "(NULL,'foo')";
+    }
+  };
+  
+  private QueryExecutorImpl exec;
+  
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    // Initializes the logging
+    Command.execute(new String[] { "--test" }, QueryExecutorImplTest.class);
+  }
+  
+  @Before
+  public void initialize() {
+    exec = QueryExecutorImpl.make(null, makeFailingConnection(), new MySqlDialect());
+  }
+  
+  @After
+  public void cleanUp() {
+    exec.close();
+  }
+  
+  @Test
+  public void testFailedInsertWithKey() {
+    Assert.assertNull(exec.insertWithKey(INSERT));
+    Assert.assertEquals(0, exec.getInsertedRows());
+  }
+  
+  @Test
+  public void testFailedSingleInsertWithKeys() {
+    Assert.assertNull(exec.insertWithKeys(Collections.singletonList(INSERT)));
+    Assert.assertEquals(0, exec.getInsertedRows());
+  }
+  
+  @Test
+  public void testFailedBatchInsertWithKeys() {
+    Assert.assertNull(exec.insertWithKeys(Arrays.asList(INSERT, INSERT)));
+    Assert.assertEquals(0, exec.getInsertedRows());
+  }
+  
+  private static Connection makeFailingConnection() {
+    final Statement statement = makeProxy(Statement.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+        if (method.getName().startsWith("execute")) {
+          throw new SQLException("Duplicate entry");
+        } else {
+          return null;
+        }
+      }
+    });
+    return makeProxy(Connection.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("createStatement")) {
+          return statement;
+        } else {
+          return null;
+        }
+      }
+    });
+  }
+  
+  private static <T> T makeProxy(Class<T> iface, InvocationHandler handler) {
+    return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface }, handler));
+  }
+}
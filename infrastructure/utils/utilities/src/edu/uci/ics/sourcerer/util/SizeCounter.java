@@ -57,6 +57,11 @@ public class SizeCounter implements Comparable<SizeCounter> {
     bytes += value;
   }
   
+  public void add(SizeCounter other) {
+    count += other.count;
+    bytes += other.bytes;
+  }
+  
   public String getCountString() {
     return Integer.toString(count);
   }
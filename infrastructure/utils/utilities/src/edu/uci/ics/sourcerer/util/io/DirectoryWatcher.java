@@ -0,0 +1,131 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches a set of directories, reporting the paths that were created,
+ * deleted or modified directly within them. Directories aren't watched
+ * recursively, so new subdirectories need to be registered as they're
+ * discovered.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class DirectoryWatcher implements Closeable {
+  private final WatchService service;
+  private final Map<WatchKey, File> keys;
+  private final Set<File> dirs;
+  private boolean exhausted;
+  
+  private DirectoryWatcher(WatchService service) {
+    this.service = service;
+    keys = new HashMap<>();
+    dirs = new HashSet<>();
+  }
+  
+  public static DirectoryWatcher create() throws IOException {
+    return new DirectoryWatcher(FileSystems.getDefault().newWatchService());
+  }
+  
+  /**
+   * Returns false if the directory couldn't be watched. After the first
+   * failure other than a missing directory, usually the system's watch
+   * limit, no further registrations are attempted.
+   */
+  public boolean register(File dir) {
+    if (dirs.contains(dir)) {
+      return true;
+    } else if (exhausted) {
+      return false;
+    } else {
+      try {
+        WatchKey key = dir.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        keys.put(key, dir);
+        dirs.add(dir);
+        return true;
+      } catch (NoSuchFileException e) {
+        return false;
+      } catch (IOException e) {
+        exhausted = true;
+        logger.log(Level.SEVERE, "Unable to watch " + dir.getPath() + ", no further directories will be watched", e);
+        return false;
+      }
+    }
+  }
+  
+  public int getWatchedCount() {
+    return dirs.size();
+  }
+  
+  /**
+   * Waits up to timeout milliseconds for changes, then keeps collecting
+   * them until none arrive for the quiet period. Returns the changed
+   * paths, which is empty if the timeout expired, or null if events were
+   * lost and everything should be rechecked.
+   */
+  public Set<File> poll(long timeout, long quiet) throws InterruptedException {
+    Set<File> changed = new HashSet<>();
+    boolean overflow = false;
+    WatchKey key = service.poll(Math.max(timeout, 0), TimeUnit.MILLISECONDS);
+    while (key != null) {
+      File dir = keys.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          overflow = true;
+        } else if (dir != null) {
+          changed.add(new File(dir, ((Path) event.context()).toString()));
+        }
+      }
+      if (!key.reset()) {
+        // The directory is gone
+        keys.remove(key);
+        dirs.remove(dir);
+        if (dir != null) {
+          changed.add(dir);
+        }
+      }
+      key = service.poll(quiet, TimeUnit.MILLISECONDS);
+    }
+    return overflow ? null : changed;
+  }
+  
+  @Override
+  public void close() throws IOException {
+    keys.clear();
+    dirs.clear();
+    service.close();
+  }
+}
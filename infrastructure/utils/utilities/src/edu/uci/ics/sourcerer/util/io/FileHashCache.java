@@ -0,0 +1,213 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Persistent file hash cache keyed by path, size and modification time.
+ * New hashes and invalidations are appended to the cache file, which is
+ * rewritten once superseded or stale entries outnumber the live ones.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class FileHashCache {
+  private static final int MIN_COMPACTION = 1000;
+  private static final String TOMBSTONE = "-1\t0\t-\t";
+  
+  private final String root;
+  private final File cacheFile;
+  private final Map<String, Entry> entries;
+  private BufferedWriter writer;
+  private int superseded;
+  
+  private FileHashCache(File root, File cacheFile) {
+    this.root = root.getAbsolutePath() + File.separatorChar;
+    this.cacheFile = cacheFile;
+    entries = new ConcurrentHashMap<>();
+  }
+  
+  public static FileHashCache load(File root, File cacheFile, boolean clear) {
+    FileHashCache cache = new FileHashCache(root, cacheFile);
+    if (clear) {
+      cacheFile.delete();
+    } else if (cacheFile.exists()) {
+      cache.read();
+    }
+    // Stale entries are counted as lookups find them, rather than by statting every file here
+    if (cache.superseded > Math.max(MIN_COMPACTION, cache.entries.size())) {
+      cache.compact();
+    }
+    return cache;
+  }
+  
+  private void read() {
+    try (BufferedReader reader = IOUtils.createBufferedReader(cacheFile)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 4);
+        if (parts.length == 4) {
+          try {
+            long length = Long.parseLong(parts[0]);
+            if (length < 0) {
+              // A tombstone, which is garbage along with whatever it removes
+              superseded++;
+              if (entries.remove(parts[3]) != null) {
+                superseded++;
+              }
+            } else if (entries.put(parts[3], new Entry(length, Long.parseLong(parts[1]), parts[2])) != null) {
+              superseded++;
+            }
+          } catch (NumberFormatException e) {
+            superseded++;
+          }
+        } else {
+          superseded++;
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to read hash cache: " + cacheFile.getPath(), e);
+    }
+  }
+  
+  public String getHash(File file) {
+    String key = getKey(file);
+    // Size and time are read before hashing, so a file changed meanwhile is not cached
+    long length = file.length();
+    long modified = file.lastModified();
+    Entry entry = entries.get(key);
+    if (entry != null && entry.length == length && entry.modified == modified) {
+      return entry.hash;
+    }
+    String hash = FileHasher.computeHash(file);
+    if (hash != null && file.lastModified() == modified) {
+      // Replacing a stale entry counts it as superseded
+      record(key, new Entry(length, modified, hash));
+    } else if (entry != null && !file.exists()) {
+      invalidate(file);
+    }
+    return hash;
+  }
+  
+  public void put(File file, String hash) {
+    record(getKey(file), new Entry(file.length(), file.lastModified(), hash));
+  }
+  
+  public synchronized void invalidate(File file) {
+    String key = getKey(file);
+    if (entries.remove(key) != null) {
+      superseded += 2;
+      append(TOMBSTONE + key);
+    }
+  }
+  
+  private String getKey(File file) {
+    String path = file.getAbsolutePath();
+    if (path.startsWith(root)) {
+      return path.substring(root.length());
+    } else {
+      return path;
+    }
+  }
+  
+  private synchronized void record(String key, Entry entry) {
+    if (entries.put(key, entry) != null) {
+      superseded++;
+    }
+    append(entry.length + "\t" + entry.modified + "\t" + entry.hash + "\t" + key);
+  }
+  
+  private void append(String line) {
+    try {
+      if (writer == null) {
+        writer = IOUtils.makeBufferedWriter(FileUtils.ensureWriteable(cacheFile), true);
+      }
+      writer.write(line);
+      writer.newLine();
+      writer.flush();
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write hash cache: " + cacheFile.getPath(), e);
+      IOUtils.close(writer);
+      writer = null;
+    }
+  }
+  
+  /**
+   * Rewrites the cache file with one line per entry, dropping files that
+   * no longer exist or have changed since they were hashed.
+   */
+  public synchronized void compact() {
+    IOUtils.close(writer);
+    writer = null;
+    File tempFile = new File(cacheFile.getPath() + ".tmp");
+    try (BufferedWriter out = IOUtils.makeBufferedWriter(FileUtils.ensureWriteable(tempFile))) {
+      for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+        String key = mapEntry.getKey();
+        Entry entry = mapEntry.getValue();
+        if (isCurrent(key, entry)) {
+          out.write(entry.length + "\t" + entry.modified + "\t" + entry.hash + "\t" + key);
+          out.newLine();
+        } else {
+          entries.remove(key);
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to compact hash cache: " + cacheFile.getPath(), e);
+      tempFile.delete();
+      return;
+    }
+    cacheFile.delete();
+    if (tempFile.renameTo(cacheFile)) {
+      superseded = 0;
+    } else {
+      logger.severe("Unable to replace hash cache: " + cacheFile.getPath());
+    }
+  }
+  
+  private boolean isCurrent(String key, Entry entry) {
+    File file = new File(key);
+    if (!file.isAbsolute()) {
+      file = new File(root, key);
+    }
+    return file.lastModified() == entry.modified && file.length() == entry.length;
+  }
+  
+  public synchronized void close() {
+    IOUtils.close(writer);
+    writer = null;
+  }
+  
+  private static final class Entry {
+    private final long length;
+    private final long modified;
+    private final String hash;
+    
+    private Entry(long length, long modified, String hash) {
+      this.length = length;
+      this.modified = modified;
+      this.hash = hash;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class FileHasher {
+  public static final Argument<Integer> HASH_THREADS = new IntegerArgument("hash-threads", 4, "Number of threads used to hash files in bulk.").permit();
+  
+  private static final int BUFFER_SIZE = 1 << 20;
+  
+  // Direct buffers are expensive to allocate, so each thread keeps one
+  private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+  };
+  
+  private static volatile FileHashCache cache;
+  
+  private FileHasher() {}
+  
+  public static void setCache(FileHashCache hashCache) {
+    cache = hashCache;
+  }
+  
+  public static FileHashCache getCache() {
+    return cache;
+  }
+  
+  public static String hash(File file) {
+    FileHashCache hashCache = cache;
+    if (hashCache == null) {
+      return computeHash(file);
+    } else {
+      return hashCache.getHash(file);
+    }
+  }
+  
+  static String computeHash(File file) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MessageDigest md5 = MessageDigest.getInstance("MD5");
+      ByteBuffer buff = buffers.get();
+      buff.clear();
+      while (channel.read(buff) != -1) {
+        buff.flip();
+        md5.update(buff);
+        buff.clear();
+      }
+      return new BigInteger(1, md5.digest()).toString(16);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error getting md5 for " + file.getPath(), e);
+      return null;
+    } catch (NoSuchAlgorithmException e) {
+      logger.log(Level.SEVERE, "Error getting md5", e);
+      return null;
+    }
+  }
+  
+  /**
+   * Hashes the files concurrently. The map iterates in the order of the
+   * input, and files that could not be read map to null.
+   */
+  public static Map<File, String> hash(Collection<File> files) {
+    Map<File, String> hashes = new LinkedHashMap<>();
+    int threads = Math.min(HASH_THREADS.getValue(), files.size());
+    if (threads <= 1) {
+      for (File file : files) {
+        hashes.put(file, hash(file));
+      }
+      return hashes;
+    }
+    
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+      
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "file-hasher-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      List<Future<String>> futures = new ArrayList<>(files.size());
+      for (final File file : files) {
+        futures.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() {
+            return hash(file);
+          }
+        }));
+      }
+      int i = 0;
+      for (File file : files) {
+        String hash = null;
+        try {
+          hash = futures.get(i++).get();
+        } catch (ExecutionException e) {
+          logger.log(Level.SEVERE, "Error getting md5 for " + file.getPath(), e.getCause());
+        }
+        hashes.put(file, hash);
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted while hashing files", e);
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+    return hashes;
+  }
+}
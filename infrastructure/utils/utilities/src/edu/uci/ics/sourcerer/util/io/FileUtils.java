@@ -186,19 +186,14 @@ public class FileUtils {
   }
   
   public static String computeHash(File file) {
-    try (InputStream is = new FileInputStream(file)) {
-      return computeHash(is);
-    } catch (IOException e) {
-      logger.log(Level.SEVERE, "Error getting md5 for " + file.getPath(), e);
-      return null;
-    }
+    return FileHasher.hash(file);
   }
   
   public static String computeHash(InputStream is) throws IOException {
     try {
       MessageDigest md5 = MessageDigest.getInstance("MD5");
   
-      byte[] buff = new byte[1024];
+      byte[] buff = new byte[64 * 1024];
       int size;
       while ((size = is.read(buff)) != -1) {
         md5.update(buff, 0, size);
@@ -0,0 +1,219 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Read-only string to string index stored as a sorted, memory-mapped file.
+ * Lookups binary search the mapped keys without loading the entries.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class MappedIndex {
+  private static final int MAGIC = 0x53524958;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 20;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  private static final Comparator<byte[]> BYTE_ORDER = new Comparator<byte[]>() {
+    @Override
+    public int compare(byte[] one, byte[] two) {
+      return MappedIndex.compare(one, two);
+    }
+  };
+  
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int dataStart;
+  
+  private MappedIndex(ByteBuffer buffer, int size) {
+    this.buffer = buffer;
+    this.size = size;
+    dataStart = HEADER_SIZE + 4 * (size + 1);
+  }
+  
+  /**
+   * Newest modification time of the directory's immediate subdirectories,
+   * combined with their count, used to detect stale indexes. The
+   * directory's own modification time is left out so that writing an
+   * index into it doesn't invalidate that index.
+   */
+  public static long directoryStamp(File dir) {
+    long stamp = 0;
+    int count = 0;
+    File[] children = dir.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          stamp = Math.max(stamp, child.lastModified());
+          count++;
+        }
+      }
+    }
+    return 31 * stamp + count;
+  }
+  
+  public static void write(File file, long stamp, Map<String, String> entries) throws IOException {
+    List<byte[][]> records = new ArrayList<>(entries.size());
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      records.add(new byte[][] { entry.getKey().getBytes(UTF8), entry.getValue().getBytes(UTF8) });
+    }
+    Collections.sort(records, new Comparator<byte[][]>() {
+      @Override
+      public int compare(byte[][] one, byte[][] two) {
+        return BYTE_ORDER.compare(one[0], two[0]);
+      }
+    });
+    
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.makeOutputStream(FileUtils.ensureWriteable(tempFile))))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(stamp);
+      out.writeInt(records.size());
+      int offset = 0;
+      for (byte[][] record : records) {
+        out.writeInt(offset);
+        offset += 4 + record[0].length + record[1].length;
+      }
+      out.writeInt(offset);
+      for (byte[][] record : records) {
+        out.writeInt(record[0].length);
+        out.write(record[0]);
+        out.write(record[1]);
+      }
+    }
+    file.delete();
+    if (!tempFile.renameTo(file)) {
+      tempFile.delete();
+      throw new IOException("Unable to replace " + file.getPath());
+    }
+  }
+  
+  /**
+   * Returns null if the index is missing, unreadable or was built from a
+   * different stamp.
+   */
+  public static MappedIndex open(File file, long stamp) {
+    if (!file.exists()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        return null;
+      } else if (buffer.getLong(8) != stamp) {
+        logger.info("Index is stale: " + file.getPath());
+        return null;
+      } else {
+        int size = buffer.getInt(16);
+        MappedIndex index = new MappedIndex(buffer, size);
+        if (size < 0 || index.dataStart + (long) index.offset(size) != channel.size()) {
+          logger.severe("Index is corrupt: " + file.getPath());
+          return null;
+        }
+        return index;
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to map index: " + file.getPath(), e);
+      return null;
+    }
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public String get(String key) {
+    byte[] target = key.getBytes(UTF8);
+    ByteBuffer buff = buffer.duplicate();
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int start = dataStart + offset(mid);
+      int keyLength = buff.getInt(start);
+      byte[] midKey = read(buff, start + 4, keyLength);
+      int cmp = compare(midKey, target);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        int valueStart = start + 4 + keyLength;
+        return new String(read(buff, valueStart, dataStart + offset(mid + 1) - valueStart), UTF8);
+      }
+    }
+    return null;
+  }
+  
+  public String getKey(int i) {
+    ByteBuffer buff = buffer.duplicate();
+    int start = dataStart + offset(i);
+    return new String(read(buff, start + 4, buff.getInt(start)), UTF8);
+  }
+  
+  public String getValue(int i) {
+    ByteBuffer buff = buffer.duplicate();
+    int start = dataStart + offset(i);
+    int valueStart = start + 4 + buff.getInt(start);
+    return new String(read(buff, valueStart, dataStart + offset(i + 1) - valueStart), UTF8);
+  }
+  
+  private int offset(int i) {
+    return buffer.getInt(HEADER_SIZE + 4 * i);
+  }
+  
+  private static byte[] read(ByteBuffer buff, int start, int length) {
+    byte[] bytes = new byte[length];
+    buff.position(start);
+    buff.get(bytes);
+    return bytes;
+  }
+  
+  private static int compare(byte[] one, byte[] two) {
+    int end = Math.min(one.length, two.length);
+    for (int i = 0; i < end; i++) {
+      int cmp = (one[i] & 0xFF) - (two[i] & 0xFF);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return one.length - two.length;
+  }
+}
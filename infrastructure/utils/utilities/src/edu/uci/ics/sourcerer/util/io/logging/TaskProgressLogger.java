@@ -19,6 +19,8 @@ package edu.uci.ics.sourcerer.util.io.logging;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.logging.Level;
@@ -39,6 +41,7 @@ public class TaskProgressLogger {
   
   private String spaces;
   private final Deque<TaskInfo> tasks;
+  private Collection<TaskListener> listeners;
   
   private TaskProgressLogger(Deque<TaskInfo> tasks) {
     this.tasks = tasks;
@@ -84,6 +87,31 @@ public class TaskProgressLogger {
     }
   }
   
+  public int getDepth() {
+    return tasks == null ? 0 : tasks.size();
+  }
+  
+  public void addListener(TaskListener listener) {
+    if (listeners == null) {
+      listeners = new ArrayList<>();
+    }
+    listeners.add(listener);
+  }
+  
+  public void removeListener(TaskListener listener) {
+    if (listeners != null) {
+      listeners.remove(listener);
+    }
+  }
+  
+  private void fireTaskFinished() {
+    if (listeners != null) {
+      for (TaskListener listener : listeners.toArray(new TaskListener[listeners.size()])) {
+        listener.taskFinished(this, tasks.size());
+      }
+    }
+  }
+  
   public Checkpoint checkpoint() {
     return new Checkpoint(tasks.size());
   }
@@ -154,6 +182,7 @@ public class TaskProgressLogger {
       TaskInfo info = tasks.pop();
       logger.info(getSpaces(info.indent + 1) + "Unable to finish " + info.taskText + " due to exception.");
       logger.log(Level.SEVERE, "Exception while " + info.taskText, e);
+      fireTaskFinished();
     }
   }
   
@@ -167,6 +196,7 @@ public class TaskProgressLogger {
       } else {
         logger.info(getSpaces(info.indent + 1) + info.count + " " + info.finishedText + " in " + formatTime(info.startTime));
       }
+      fireTaskFinished();
     }
   }
   
@@ -219,6 +249,10 @@ public class TaskProgressLogger {
     }
   }
   
+  public static interface TaskListener {
+    public void taskFinished(TaskProgressLogger task, int depth);
+  }
+  
   public class Checkpoint {
     private int stackSize;
     
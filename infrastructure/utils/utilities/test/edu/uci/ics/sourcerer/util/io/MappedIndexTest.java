@@ -0,0 +1,94 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class MappedIndexTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  };
+  
+  private File folder;
+  private File indexFile;
+  
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    // Initializes the logging
+    Command.execute(new String[] { "--test" }, MappedIndexTest.class);
+  }
+  
+  @Before
+  public void initialize() throws IOException {
+    folder = Files.createTempDirectory("mapped-index-test").toFile();
+    new File(folder, "1").mkdir();
+    new File(folder, "2").mkdir();
+    indexFile = new File(folder, "project-cache.idx");
+    
+    Map<String, String> entries = new HashMap<>();
+    entries.put("1/1", "");
+    entries.put("2/1", "");
+    MappedIndex.write(indexFile, MappedIndex.directoryStamp(folder), entries);
+  }
+  
+  @After
+  public void cleanUp() {
+    FileUtils.delete(folder);
+  }
+  
+  @Test
+  public void testIndexInsideStampedDirectory() {
+    // Writing the index touches the directory it's written into
+    folder.setLastModified(folder.lastModified() + 10000);
+    MappedIndex index = MappedIndex.open(indexFile, MappedIndex.directoryStamp(folder));
+    Assert.assertNotNull(index);
+    Assert.assertEquals(2, index.size());
+    Assert.assertEquals("", index.get("1/1"));
+  }
+  
+  @Test
+  public void testNewSubdirectory() {
+    new File(folder, "3").mkdir();
+    Assert.assertNull(MappedIndex.open(indexFile, MappedIndex.directoryStamp(folder)));
+  }
+  
+  @Test
+  public void testModifiedSubdirectory() {
+    File batch = new File(folder, "1");
+    batch.setLastModified(batch.lastModified() + 10000);
+    Assert.assertNull(MappedIndex.open(indexFile, MappedIndex.directoryStamp(folder)));
+  }
+}